@@ -34,7 +34,11 @@ CREATE TABLE products (
     category_id INT,
     image_path VARCHAR(255),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    FOREIGN KEY (category_id) REFERENCES categories(category_id)
+    FOREIGN KEY (category_id) REFERENCES categories(category_id),
+    -- Keyset pagination indexes (sort key, then id as tie-breaker)
+    INDEX idx_products_category (category_id, product_id),
+    INDEX idx_products_name (name, product_id),
+    INDEX idx_products_price (price, product_id)
 );
 
 -- Orders table
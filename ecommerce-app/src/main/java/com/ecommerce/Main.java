@@ -1,19 +1,36 @@
 package com.ecommerce;
 
+import com.ecommerce.config.DatabaseConnection;
+import com.ecommerce.server.ApiServer;
+import com.ecommerce.service.CartStore;
+import com.ecommerce.service.CheckoutBatcher;
+import com.ecommerce.service.InventoryReservationService;
+import com.ecommerce.service.SessionRegistry;
 import com.ecommerce.ui.MainFrame;
+import com.ecommerce.util.PasswordHasher;
+import com.ecommerce.util.StartupTimer;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
 
 public class Main {
     public static void main(String[] args) {
+        StartupTimer.mainStarted();
+
+        // "--server [port]" runs the JSON API without a window, e.g. behind a load balancer
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args);
+            return;
+        }
+
         // Set the look and feel to the system look and feel
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (Exception e) {
             e.printStackTrace();
         }
-        
+
         // Create and display the main frame on the EDT
         SwingUtilities.invokeLater(new Runnable() {
             @Override
@@ -23,4 +40,45 @@ public class Main {
             }
         });
     }
+
+    private static void runServer(String[] args) {
+        final ApiServer server;
+        try {
+            if (args.length > 1) {
+                DatabaseConnection config = DatabaseConnection.getInstance();
+                server = new ApiServer(Integer.parseInt(args[1]),
+                        config.getIntProperty("server.backlog", 1024),
+                        config.getIntProperty("server.fallbackThreads", 200));
+            } else {
+                server = ApiServer.fromConfig();
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid port: " + args[1]);
+            System.exit(2);
+            return;
+        } catch (IOException e) {
+            System.err.println("Error starting server: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        // Same order as closing the desktop window, after in-flight requests have finished
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                System.out.println("Server stopping");
+                server.stop(DatabaseConnection.getInstance().getIntProperty("server.stopDelaySeconds", 5));
+                CheckoutBatcher.shutdown();
+                SessionRegistry.shutdown();
+                CartStore.shutdown();
+                InventoryReservationService.shutdown();
+                PasswordHasher.shutdown();
+                DatabaseConnection.shutdown();
+            }
+        }, "server-shutdown"));
+
+        server.start();
+        System.out.println("Server listening on port " + server.getPort()
+                + (server.isUsingVirtualThreads() ? " (virtual threads)" : " (platform thread pool)"));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.ecommerce.benchmark;
+
+import com.ecommerce.config.DatabaseConnection;
+import com.ecommerce.dao.ProductDAO;
+import com.ecommerce.dao.UserDAO;
+import com.ecommerce.model.User;
+import com.ecommerce.service.CartService;
+import com.ecommerce.service.CheckoutBatcher;
+import com.ecommerce.service.OrderService;
+import com.ecommerce.util.PasswordUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Compares checkout throughput and latency of the one-transaction-per-order path with
+ * group commit. Runs against the configured database, which needs at least one product.
+ * Benchmark users are created on first run, and the product's stock is topped up first
+ * so no checkout fails for lack of it.
+ *
+ * Usage: CheckoutBenchmark [threads] [checkoutsPerThread] [productId] [maxBatchSize] [maxWaitMillis]
+ */
+public class CheckoutBenchmark {
+    private static final String SHIPPING_ADDRESS = "1 Benchmark Way";
+
+    public static void main(String[] args) throws Exception {
+        int threads = intArg(args, 0, 16);
+        int checkoutsPerThread = intArg(args, 1, 50);
+        int productId = intArg(args, 2, 1);
+        int maxBatchSize = intArg(args, 3, 32);
+        int maxWaitMillis = intArg(args, 4, 5);
+
+        List<User> users = prepareUsers(threads);
+        int warmupCheckouts = Math.max(1, checkoutsPerThread / 5);
+        if (!new ProductDAO().adjustStock(productId, threads * (2 * checkoutsPerThread + warmupCheckouts))) {
+            System.err.println("Product " + productId + " does not exist");
+            return;
+        }
+
+        OrderService orderService = new OrderService();
+        run("warm-up", users, warmupCheckouts, productId, orderService::createSingleOrder);
+        run("one transaction per order", users, checkoutsPerThread, productId, orderService::createSingleOrder);
+
+        CheckoutBatcher batcher = new CheckoutBatcher(maxBatchSize, maxWaitMillis, 2, 30000);
+        run("group commit (batch " + maxBatchSize + ", wait " + maxWaitMillis + "ms)",
+                users, checkoutsPerThread, productId, batcher::checkout);
+        System.out.printf("  average batch size: %.1f%n", batcher.getAverageBatchSize());
+
+        batcher.close();
+        DatabaseConnection.shutdown();
+    }
+
+    private static void run(String label, List<User> users, int checkoutsPerThread, int productId,
+                            ToIntBiFunction<User, String> checkout) throws InterruptedException {
+        CartService cartService = new CartService();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(users.size());
+        AtomicInteger failures = new AtomicInteger();
+        long[][] latencies = new long[users.size()][checkoutsPerThread];
+
+        for (int t = 0; t < users.size(); t++) {
+            User user = users.get(t);
+            long[] threadLatencies = latencies[t];
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < checkoutsPerThread; i++) {
+                        cartService.addToCart(user.getId(), productId, 1);
+                        long began = System.nanoTime();
+                        if (checkout.applyAsInt(user, SHIPPING_ADDRESS) == -1) {
+                            failures.incrementAndGet();
+                        }
+                        threadLatencies[i] = System.nanoTime() - began;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "checkout-benchmark-" + t);
+            thread.start();
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - began;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.println(label);
+        System.out.printf("  %d checkouts in %.2fs: %.1f orders/s, %d failed%n",
+                all.length, elapsed / 1e9, all.length / (elapsed / 1e9), failures.get());
+        System.out.printf("  latency p50 %.1fms, p95 %.1fms, p99 %.1fms, max %.1fms%n",
+                percentile(all, 0.50), percentile(all, 0.95), percentile(all, 0.99), percentile(all, 1.0));
+    }
+
+    private static List<User> prepareUsers(int count) {
+        UserDAO userDAO = new UserDAO();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String email = "checkout-bench-" + i + "@example.com";
+            User user = userDAO.findByEmail(email);
+            if (user == null) {
+                User newUser = new User();
+                newUser.setEmail(email);
+                newUser.setPassword(PasswordUtil.hashPassword("benchmark"));
+                newUser.setFullName("Checkout Benchmark " + i);
+                newUser.setRole("CUSTOMER");
+                userDAO.create(newUser);
+                user = userDAO.findByEmail(email);
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static double percentile(long[] sortedNanos, double fraction) {
+        if (sortedNanos.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(fraction * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    private static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+}
\ No newline at end of file
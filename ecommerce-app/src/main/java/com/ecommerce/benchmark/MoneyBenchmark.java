@@ -0,0 +1,126 @@
+package com.ecommerce.benchmark;
+
+import com.ecommerce.util.Money;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+/**
+ * Compares summing cart totals as double, as BigDecimal and as long cents with Money.
+ * Each round totals the same randomly priced carts, and the result is checked against
+ * the exact answer so rounding drift shows up next to the timings.
+ * Needs no database.
+ *
+ * Usage: MoneyBenchmark [carts] [linesPerCart] [rounds]
+ */
+public class MoneyBenchmark {
+    // Results are written here so the JIT cannot drop the work as unused
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int carts = intArg(args, 0, 10000);
+        int linesPerCart = intArg(args, 1, 8);
+        int rounds = intArg(args, 2, 20);
+
+        Random random = new Random(42);
+        long[] priceCents = new long[carts * linesPerCart];
+        int[] quantities = new int[priceCents.length];
+        for (int i = 0; i < priceCents.length; i++) {
+            priceCents[i] = 1 + random.nextInt(99999);
+            quantities[i] = 1 + random.nextInt(5);
+        }
+
+        double[] priceDoubles = new double[priceCents.length];
+        BigDecimal[] priceDecimals = new BigDecimal[priceCents.length];
+        for (int i = 0; i < priceCents.length; i++) {
+            priceDoubles[i] = priceCents[i] / 100.0;
+            priceDecimals[i] = Money.toBigDecimal(priceCents[i]);
+        }
+
+        long exact = sumCents(priceCents, quantities, carts, linesPerCart);
+
+        // Warm up all three so none of them is timed while still interpreted
+        for (int i = 0; i < rounds; i++) {
+            sink = sumDoubles(priceDoubles, quantities, carts, linesPerCart);
+            sink = sumDecimals(priceDecimals, quantities, carts, linesPerCart);
+            sink = sumCents(priceCents, quantities, carts, linesPerCart);
+        }
+
+        int operations = carts * rounds;
+        System.out.printf("%d carts x %d lines, %d rounds%n", carts, linesPerCart, rounds);
+
+        long began = System.nanoTime();
+        double doubleTotal = 0;
+        for (int i = 0; i < rounds; i++) {
+            doubleTotal = sumDoubles(priceDoubles, quantities, carts, linesPerCart);
+        }
+        report("double", System.nanoTime() - began, operations,
+                BigDecimal.valueOf(doubleTotal).compareTo(Money.toBigDecimal(exact)) == 0,
+                String.valueOf(doubleTotal));
+        sink = doubleTotal;
+
+        began = System.nanoTime();
+        BigDecimal decimalTotal = BigDecimal.ZERO;
+        for (int i = 0; i < rounds; i++) {
+            decimalTotal = sumDecimals(priceDecimals, quantities, carts, linesPerCart);
+        }
+        report("BigDecimal", System.nanoTime() - began, operations,
+                decimalTotal.compareTo(Money.toBigDecimal(exact)) == 0 && decimalTotal.scale() == Money.SCALE,
+                decimalTotal.toPlainString());
+        sink = decimalTotal;
+
+        began = System.nanoTime();
+        long centsTotal = 0;
+        for (int i = 0; i < rounds; i++) {
+            centsTotal = sumCents(priceCents, quantities, carts, linesPerCart);
+        }
+        report("long cents", System.nanoTime() - began, operations, centsTotal == exact,
+                Money.toPlainString(centsTotal));
+        sink = centsTotal;
+    }
+
+    private static double sumDoubles(double[] prices, int[] quantities, int carts, int linesPerCart) {
+        double grandTotal = 0;
+        for (int c = 0; c < carts; c++) {
+            double cartTotal = 0;
+            for (int i = c * linesPerCart; i < (c + 1) * linesPerCart; i++) {
+                cartTotal += prices[i] * quantities[i];
+            }
+            grandTotal += cartTotal;
+        }
+        return grandTotal;
+    }
+
+    private static BigDecimal sumDecimals(BigDecimal[] prices, int[] quantities, int carts, int linesPerCart) {
+        BigDecimal grandTotal = BigDecimal.ZERO;
+        for (int c = 0; c < carts; c++) {
+            BigDecimal cartTotal = BigDecimal.ZERO.setScale(Money.SCALE);
+            for (int i = c * linesPerCart; i < (c + 1) * linesPerCart; i++) {
+                cartTotal = cartTotal.add(prices[i].multiply(BigDecimal.valueOf(quantities[i])));
+            }
+            grandTotal = grandTotal.add(cartTotal);
+        }
+        return grandTotal;
+    }
+
+    private static long sumCents(long[] prices, int[] quantities, int carts, int linesPerCart) {
+        long grandTotal = 0;
+        for (int c = 0; c < carts; c++) {
+            long cartTotal = 0;
+            for (int i = c * linesPerCart; i < (c + 1) * linesPerCart; i++) {
+                cartTotal = Money.add(cartTotal, Money.multiply(prices[i], quantities[i]));
+            }
+            grandTotal = Money.add(grandTotal, cartTotal);
+        }
+        return grandTotal;
+    }
+
+    private static void report(String label, long elapsedNanos, int operations, boolean exact, String total) {
+        System.out.printf("%-12s %8.1f ns/cart  total %s%s%n", label, (double) elapsedNanos / operations,
+                total, exact ? "" : "  (inexact)");
+    }
+
+    private static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,246 @@
+package com.ecommerce.config;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of physical JDBC connections.
+ * Connections are handed out as proxies whose close() returns them to the pool.
+ */
+public class ConnectionPool {
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final long leakDetectionThresholdMillis;
+    private final int statementCacheSize;
+    private final StatementCache.Stats statementStats = new StatementCache.Stats();
+
+    // One permit per connection that may be handed out
+    private final Semaphore permits;
+    // Idle connections, most recently used first
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String username, String password,
+                          int minSize, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, int validationTimeoutSeconds,
+                          long leakDetectionThresholdMillis, int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, 30000) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to the borrow timeout for one to become free.
+     * The caller must close() the returned connection to give it back.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + borrowTimeoutMillis
+                        + "ms waiting for a database connection (in use: " + borrowed.size()
+                        + ", max: " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeValidConnection();
+            pooled.markBorrowed(leakDetectionThresholdMillis > 0);
+            borrowed.add(pooled);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidConnection() throws SQLException {
+        while (true) {
+            PooledConnection candidate;
+            synchronized (idle) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return newPooledConnection();
+            }
+            if (isValid(candidate)) {
+                return candidate;
+            }
+            candidate.closePhysical();
+        }
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.getPhysical().isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection newPooledConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, username, password);
+        return new PooledConnection(this, physical, statementCacheSize, statementStats);
+    }
+
+    /**
+     * Called by a connection handle when the borrower closes it.
+     */
+    void release(PooledConnection pooled) {
+        if (!borrowed.remove(pooled)) {
+            return;
+        }
+
+        try {
+            if (closed || !pooled.resetForReuse()) {
+                pooled.closePhysical();
+            } else {
+                synchronized (idle) {
+                    idle.addFirst(pooled);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        // Evict connections idle for too long, keeping the minimum around
+        List<PooledConnection> evicted = new ArrayList<>();
+        synchronized (idle) {
+            int excess = idle.size() + borrowed.size() - minSize;
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && excess > 0) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.getLastReturnedAt() >= idleTimeoutMillis) {
+                    it.remove();
+                    evicted.add(pooled);
+                    excess--;
+                }
+            }
+        }
+        for (PooledConnection pooled : evicted) {
+            pooled.closePhysical();
+        }
+
+        // Top the pool back up to its minimum size
+        try {
+            while (!closed && idleCount() + borrowed.size() < minSize) {
+                PooledConnection pooled = newPooledConnection();
+                synchronized (idle) {
+                    idle.addLast(pooled);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error filling connection pool: " + e.getMessage());
+        }
+
+        // Report connections held longer than the leak threshold
+        if (leakDetectionThresholdMillis > 0) {
+            for (PooledConnection pooled : borrowed) {
+                if (now - pooled.getBorrowedAt() >= leakDetectionThresholdMillis && pooled.markLeakReported()) {
+                    System.err.println("Possible connection leak: connection held for "
+                            + (now - pooled.getBorrowedAt()) + "ms by thread " + pooled.getBorrowerName());
+                    if (pooled.getBorrowTrace() != null) {
+                        pooled.getBorrowTrace().printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    private int idleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idleCount();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getStatementCacheHits() {
+        return statementStats.hits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementStats.misses.sum();
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementStats.evictions.sum();
+    }
+
+    /**
+     * Close all idle connections and stop handing out new ones.
+     * Borrowed connections are closed as they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        List<PooledConnection> toClose;
+        synchronized (idle) {
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (PooledConnection pooled : toClose) {
+            pooled.closePhysical();
+        }
+    }
+}
\ No newline at end of file
@@ -3,7 +3,6 @@ package com.ecommerce.config;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 
@@ -13,12 +12,13 @@ public class DatabaseConnection {
     private static String username;
     private static String password;
     private static DatabaseConnection instance;
-    
+
+    private final Properties properties = new Properties();
+    private ConnectionPool pool;
+
     private DatabaseConnection() {
         // Load database configuration from properties file
         try (InputStream input = getClass().getResourceAsStream(CONFIG_FILE)) {
-            Properties prop = new Properties();
-            
             if (input == null) {
                 System.out.println("Sorry, unable to find " + CONFIG_FILE);
                 // Fallback to default values
@@ -27,12 +27,12 @@ public class DatabaseConnection {
                 password = "";
                 return;
             }
-            
-            prop.load(input);
-            url = prop.getProperty("db.url");
-            username = prop.getProperty("db.username");
-            password = prop.getProperty("db.password");
-            
+
+            properties.load(input);
+            url = properties.getProperty("db.url");
+            username = properties.getProperty("db.username");
+            password = properties.getProperty("db.password");
+
         } catch (IOException e) {
             e.printStackTrace();
             // Fallback to default values
@@ -41,23 +41,85 @@ public class DatabaseConnection {
             password = "";
         }
     }
-    
+
     public static synchronized DatabaseConnection getInstance() {
         if (instance == null) {
             instance = new DatabaseConnection();
         }
         return instance;
     }
-    
+
+    /**
+     * Borrow a connection from the pool. Closing it returns it to the pool.
+     */
     public Connection getConnection() throws SQLException {
+        return getPool().borrow();
+    }
+
+    public synchronized ConnectionPool getPool() throws SQLException {
+        if (pool == null) {
+            try {
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                throw new SQLException("MySQL JDBC Driver not found", e);
+            }
+
+            pool = new ConnectionPool(url, username, password,
+                    getIntProperty("db.pool.minSize", 2),
+                    getIntProperty("db.pool.maxSize", 10),
+                    getLongProperty("db.pool.borrowTimeoutMillis", 5000),
+                    getLongProperty("db.pool.idleTimeoutMillis", 600000),
+                    getIntProperty("db.pool.validationTimeoutSeconds", 2),
+                    getLongProperty("db.pool.leakDetectionThresholdMillis", 30000),
+                    getIntProperty("db.pool.statementCacheSize", 64));
+        }
+        return pool;
+    }
+
+    public int getIntProperty(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("MySQL JDBC Driver not found", e);
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value);
+            return defaultValue;
         }
-        return DriverManager.getConnection(url, username, password);
     }
-    
+
+    public long getLongProperty(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public boolean getBooleanProperty(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Close the pool if it was ever opened. Safe to call on application exit.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null && instance.pool != null) {
+            instance.pool.close();
+            instance.pool = null;
+        }
+    }
+
     public static void closeConnection(Connection connection) {
         if (connection != null) {
             try {
@@ -0,0 +1,161 @@
+package com.ecommerce.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A physical connection owned by the pool, plus its borrow bookkeeping.
+ */
+class PooledConnection {
+    private final ConnectionPool pool;
+    private final Connection physical;
+    private final StatementCache statementCache;
+
+    private volatile long borrowedAt;
+    private volatile long lastReturnedAt;
+    private volatile String borrowerName;
+    private volatile Throwable borrowTrace;
+    private final AtomicBoolean leakReported = new AtomicBoolean();
+
+    PooledConnection(ConnectionPool pool, Connection physical, int statementCacheSize,
+                     StatementCache.Stats statementStats) {
+        this.pool = pool;
+        this.physical = physical;
+        this.statementCache = statementCacheSize > 0
+                ? new StatementCache(physical, statementCacheSize, statementStats)
+                : null;
+        this.lastReturnedAt = System.currentTimeMillis();
+    }
+
+    Connection getPhysical() {
+        return physical;
+    }
+
+    void markBorrowed(boolean captureTrace) {
+        borrowedAt = System.currentTimeMillis();
+        borrowerName = Thread.currentThread().getName();
+        borrowTrace = captureTrace ? new Exception("Connection borrowed here") : null;
+        leakReported.set(false);
+    }
+
+    /**
+     * Create a fresh proxy for one borrow. Each handle can only be closed once,
+     * and is unusable after it has been returned.
+     */
+    Connection newHandle() {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Handle());
+    }
+
+    /**
+     * Undo anything the borrower may have changed on the session.
+     * @return false if the connection is no longer usable
+     */
+    boolean resetForReuse() {
+        try {
+            if (physical.isClosed()) {
+                return false;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (physical.isReadOnly()) {
+                physical.setReadOnly(false);
+            }
+            physical.clearWarnings();
+            lastReturnedAt = System.currentTimeMillis();
+            borrowTrace = null;
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Discarding pooled connection: " + e.getMessage());
+            return false;
+        }
+    }
+
+    void closePhysical() {
+        if (statementCache != null) {
+            statementCache.closeAll();
+        }
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing connection: " + e.getMessage());
+        }
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    long getLastReturnedAt() {
+        return lastReturnedAt;
+    }
+
+    String getBorrowerName() {
+        return borrowerName;
+    }
+
+    Throwable getBorrowTrace() {
+        return borrowTrace;
+    }
+
+    boolean markLeakReported() {
+        return leakReported.compareAndSet(false, true);
+    }
+
+    private class Handle implements InvocationHandler {
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            switch (name) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + physical + "]";
+                default:
+                    break;
+            }
+
+            if (returned.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            if (statementCache != null && name.equals("prepareStatement")) {
+                // Only the prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) forms are cached
+                Class<?>[] types = method.getParameterTypes();
+                if (types.length == 1) {
+                    return statementCache.prepare((String) args[0], -1, (Connection) proxy);
+                }
+                if (types.length == 2 && types[1] == int.class) {
+                    return statementCache.prepare((String) args[0], (Integer) args[1], (Connection) proxy);
+                }
+            }
+
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,194 @@
+package com.ecommerce.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of prepared statements for a single physical connection, keyed by SQL text.
+ * A pooled connection is only ever used by one borrower at a time, so the cache itself
+ * is not thread-safe; only the shared counters are.
+ * <p>
+ * Reuse only saves a parse when the driver prepares on the server
+ * ({@code useServerPrepStmts=true} in db.url); with client-side prepares a hit just
+ * skips allocating the statement object.
+ */
+class StatementCache {
+    private final Connection physical;
+    private final int maxSize;
+    private final Stats stats;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection physical, int maxSize, Stats stats) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.stats = stats;
+    }
+
+    /**
+     * Hand out a statement for the given SQL, reusing a cached one when it is free.
+     * @param autoGeneratedKeys a Statement constant, or -1 for the plain prepareStatement(sql) form
+     * @param owner the connection handle the borrower sees via getConnection()
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys, Connection owner) throws SQLException {
+        String key = autoGeneratedKeys < 0 ? sql : autoGeneratedKeys + ":" + sql;
+        Entry entry = entries.get(key);
+
+        if (entry != null && !entry.inUse) {
+            stats.hits.increment();
+            entry.inUse = true;
+            return entry.newHandle(owner);
+        }
+
+        stats.misses.increment();
+        PreparedStatement statement = autoGeneratedKeys < 0
+                ? physical.prepareStatement(sql)
+                : physical.prepareStatement(sql, autoGeneratedKeys);
+
+        if (entry != null) {
+            // Same SQL is already open on this connection (nested use); don't cache the second copy
+            return statement;
+        }
+
+        entry = new Entry(key, statement);
+        entry.inUse = true;
+        entries.put(key, entry);
+        evictOverflow();
+        return entry.newHandle(owner);
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next();
+            if (!eldest.inUse) {
+                it.remove();
+                stats.evictions.increment();
+                closeQuietly(eldest.statement);
+            }
+        }
+    }
+
+    private void release(Entry entry) {
+        entry.inUse = false;
+        if (entries.get(entry.key) != entry) {
+            // Evicted or replaced while it was checked out
+            closeQuietly(entry.statement);
+            return;
+        }
+
+        try {
+            entry.statement.clearParameters();
+            entry.statement.clearBatch();
+            entry.statement.setQueryTimeout(0);
+            entry.statement.setMaxRows(0);
+            entry.statement.setFetchSize(0);
+        } catch (SQLException e) {
+            entries.remove(entry.key);
+            closeQuietly(entry.statement);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void closeAll() {
+        List<Entry> toClose = new ArrayList<>(entries.values());
+        entries.clear();
+        for (Entry entry : toClose) {
+            closeQuietly(entry.statement);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Counters shared by every cache in a pool.
+     */
+    static class Stats {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    private class Entry {
+        private final String key;
+        private final PreparedStatement statement;
+        private boolean inUse;
+
+        Entry(String key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        PreparedStatement newHandle(Connection owner) {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new Handle(this, owner));
+        }
+    }
+
+    /**
+     * What the borrower sees: close() puts the statement back in the cache
+     * instead of closing it.
+     */
+    private class Handle implements InvocationHandler {
+        private final Entry entry;
+        private final Connection owner;
+        private boolean closed;
+
+        Handle(Entry entry, Connection owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Statement has already been closed");
+            }
+
+            try {
+                return method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -3,20 +3,22 @@ package com.ecommerce.dao;
 import com.ecommerce.config.DatabaseConnection;
 import com.ecommerce.model.CartItem;
 import com.ecommerce.model.Product;
+import com.ecommerce.util.Money;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CartItemDAO {
-    private Connection connection;
+    // Largest number of rows sent in one multi-row upsert by addToCartBatch
+    private static final int MAX_ROWS_PER_UPSERT = 500;
+
+    private final DatabaseConnection dbConnection;
 
     public CartItemDAO() {
-        try {
-            connection = DatabaseConnection.getConnection();
-        } catch (SQLException e) {
-            System.err.println("Failed to establish database connection: " + e.getMessage());
-        }
+        dbConnection = DatabaseConnection.getInstance();
     }
 
     public List<CartItem> getCartItemsByUser(int userId) throws SQLException {
@@ -26,57 +28,69 @@ public class CartItemDAO {
                       "JOIN products p ON ci.product_id = p.id " +
                       "WHERE ci.user_id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, userId);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    CartItem cartItem = new CartItem();
-                    cartItem.setId(rs.getInt("id"));
-                    cartItem.setUserId(rs.getInt("user_id"));
-                    
-                    Product product = new Product();
-                    product.setId(rs.getInt("product_id"));
-                    product.setName(rs.getString("name"));
-                    product.setPrice(rs.getDouble("price"));
-                    product.setImageUrl(rs.getString("image_url"));
-                    product.setStockQuantity(rs.getInt("stock_quantity"));
-                    cartItem.setProduct(product);
-                    
-                    cartItem.setQuantity(rs.getInt("quantity"));
-                    cartItems.add(cartItem);
+                    cartItems.add(mapResultSetToCartItem(rs));
                 }
             }
         }
         return cartItems;
     }
 
+    /**
+     * Load the carts of several users at once on the caller's connection, locking the
+     * cart rows until the transaction ends so a concurrent checkout of the same cart
+     * waits instead of ordering it twice.
+     * @return Cart items keyed by user id; users with an empty cart are absent
+     */
+    public Map<Integer, List<CartItem>> getCartItemsByUsers(Connection conn, int[] userIds) throws SQLException {
+        Map<Integer, List<CartItem>> carts = new HashMap<>();
+        if (userIds.length == 0) {
+            return carts;
+        }
+        
+        StringBuilder query = new StringBuilder("SELECT ci.*, p.name, p.price, p.image_url, p.stock_quantity " +
+                      "FROM cart_items ci " +
+                      "JOIN products p ON ci.product_id = p.id " +
+                      "WHERE ci.user_id IN (");
+        for (int i = 0; i < userIds.length; i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        query.append(") ORDER BY ci.id FOR UPDATE");
+        
+        try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+            for (int i = 0; i < userIds.length; i++) {
+                stmt.setInt(i + 1, userIds[i]);
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    CartItem cartItem = mapResultSetToCartItem(rs);
+                    carts.computeIfAbsent(cartItem.getUserId(), id -> new ArrayList<>()).add(cartItem);
+                }
+            }
+        }
+        return carts;
+    }
+
     public CartItem getCartItem(int userId, int productId) throws SQLException {
         String query = "SELECT ci.*, p.name, p.price, p.image_url, p.stock_quantity " +
                       "FROM cart_items ci " +
                       "JOIN products p ON ci.product_id = p.id " +
                       "WHERE ci.user_id = ? AND ci.product_id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, userId);
             stmt.setInt(2, productId);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    CartItem cartItem = new CartItem();
-                    cartItem.setId(rs.getInt("id"));
-                    cartItem.setUserId(rs.getInt("user_id"));
-                    
-                    Product product = new Product();
-                    product.setId(rs.getInt("product_id"));
-                    product.setName(rs.getString("name"));
-                    product.setPrice(rs.getDouble("price"));
-                    product.setImageUrl(rs.getString("image_url"));
-                    product.setStockQuantity(rs.getInt("stock_quantity"));
-                    cartItem.setProduct(product);
-                    
-                    cartItem.setQuantity(rs.getInt("quantity"));
-                    return cartItem;
+                    return mapResultSetToCartItem(rs);
                 }
             }
         }
@@ -84,41 +98,85 @@ public class CartItemDAO {
     }
 
     public boolean addToCart(CartItem cartItem) throws SQLException {
-        // Check if the item already exists in the cart
-        CartItem existingItem = getCartItem(cartItem.getUserId(), cartItem.getProduct().getId());
+        // Insert the line, or add to its quantity if the user already has this product,
+        // in one statement relying on UNIQUE KEY (user_id, product_id).
+        // LAST_INSERT_ID(id) makes the existing row's id come back as the generated key.
+        String query = "INSERT INTO cart_items (user_id, product_id, quantity) VALUES (?, ?, ?) " +
+                      "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), id = LAST_INSERT_ID(id)";
         
-        if (existingItem != null) {
-            // Update quantity if item already exists
-            int newQuantity = existingItem.getQuantity() + cartItem.getQuantity();
-            return updateCartItemQuantity(existingItem.getId(), newQuantity);
-        } else {
-            // Add new item if it doesn't exist
-            String query = "INSERT INTO cart_items (user_id, product_id, quantity) VALUES (?, ?, ?)";
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, cartItem.getUserId());
+            stmt.setInt(2, cartItem.getProduct().getId());
+            stmt.setInt(3, cartItem.getQuantity());
             
-            try (PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-                stmt.setInt(1, cartItem.getUserId());
-                stmt.setInt(2, cartItem.getProduct().getId());
-                stmt.setInt(3, cartItem.getQuantity());
-                
-                int affectedRows = stmt.executeUpdate();
-                
-                if (affectedRows > 0) {
-                    try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                        if (generatedKeys.next()) {
-                            cartItem.setId(generatedKeys.getInt(1));
-                            return true;
-                        }
+            int affectedRows = stmt.executeUpdate();
+            
+            if (affectedRows > 0) {
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        cartItem.setId(generatedKeys.getInt(1));
                     }
                 }
+                return true;
             }
         }
         return false;
     }
 
+    /**
+     * Add many lines to carts at once with multi-row upserts, up to
+     * MAX_ROWS_PER_UPSERT lines per statement. Existing lines get their quantity increased.
+     * All statements run in one transaction, so either every line is added or none is.
+     */
+    public boolean addToCartBatch(List<CartItem> cartItems) throws SQLException {
+        if (cartItems.isEmpty()) {
+            return true;
+        }
+        
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int start = 0; start < cartItems.size(); start += MAX_ROWS_PER_UPSERT) {
+                    int count = Math.min(MAX_ROWS_PER_UPSERT, cartItems.size() - start);
+                    
+                    StringBuilder query = new StringBuilder("INSERT INTO cart_items (user_id, product_id, quantity) VALUES ");
+                    for (int i = 0; i < count; i++) {
+                        query.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+                    }
+                    query.append(" ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)");
+                    
+                    try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+                        int param = 1;
+                        for (int i = start; i < start + count; i++) {
+                            CartItem cartItem = cartItems.get(i);
+                            stmt.setInt(param++, cartItem.getUserId());
+                            stmt.setInt(param++, cartItem.getProduct().getId());
+                            stmt.setInt(param++, cartItem.getQuantity());
+                        }
+                        
+                        if (stmt.executeUpdate() == 0) {
+                            conn.rollback();
+                            return false;
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return true;
+    }
+
     public boolean updateCartItemQuantity(int cartItemId, int quantity) throws SQLException {
         String query = "UPDATE cart_items SET quantity = ? WHERE id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, quantity);
             stmt.setInt(2, cartItemId);
             
@@ -126,10 +184,55 @@ public class CartItemDAO {
         }
     }
 
+    /**
+     * Write many quantity changes in one transaction. Lines with a quantity of 0 are
+     * deleted and the rest updated, with one JDBC batch for each.
+     */
+    public void applyQuantityChanges(int[] cartItemIds, int[] quantities) throws SQLException {
+        if (cartItemIds.length != quantities.length) {
+            throw new IllegalArgumentException("cartItemIds and quantities must have the same length");
+        }
+
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement update = conn.prepareStatement("UPDATE cart_items SET quantity = ? WHERE id = ?");
+                 PreparedStatement delete = conn.prepareStatement("DELETE FROM cart_items WHERE id = ?")) {
+                int updates = 0;
+                int deletes = 0;
+                for (int i = 0; i < cartItemIds.length; i++) {
+                    if (quantities[i] > 0) {
+                        update.setInt(1, quantities[i]);
+                        update.setInt(2, cartItemIds[i]);
+                        update.addBatch();
+                        updates++;
+                    } else {
+                        delete.setInt(1, cartItemIds[i]);
+                        delete.addBatch();
+                        deletes++;
+                    }
+                }
+
+                if (updates > 0) {
+                    update.executeBatch();
+                }
+                if (deletes > 0) {
+                    delete.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
     public boolean removeFromCart(int cartItemId) throws SQLException {
         String query = "DELETE FROM cart_items WHERE id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, cartItemId);
             
             return stmt.executeUpdate() > 0;
@@ -137,19 +240,52 @@ public class CartItemDAO {
     }
 
     public boolean clearCart(int userId) throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            return clearCart(conn, userId);
+        }
+    }
+
+    /**
+     * Delete the user's cart lines on the caller's connection so it can join a larger transaction.
+     */
+    public boolean clearCart(Connection conn, int userId) throws SQLException {
         String query = "DELETE FROM cart_items WHERE user_id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, userId);
             
             return stmt.executeUpdate() > 0;
         }
     }
 
+    /**
+     * Empty several carts in one statement on the caller's connection.
+     */
+    public int clearCarts(Connection conn, int[] userIds) throws SQLException {
+        if (userIds.length == 0) {
+            return 0;
+        }
+        
+        StringBuilder query = new StringBuilder("DELETE FROM cart_items WHERE user_id IN (");
+        for (int i = 0; i < userIds.length; i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        query.append(')');
+        
+        try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+            for (int i = 0; i < userIds.length; i++) {
+                stmt.setInt(i + 1, userIds[i]);
+            }
+            
+            return stmt.executeUpdate();
+        }
+    }
+
     public int getCartItemCount(int userId) throws SQLException {
         String query = "SELECT SUM(quantity) FROM cart_items WHERE user_id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, userId);
             
             try (ResultSet rs = stmt.executeQuery()) {
@@ -160,4 +296,21 @@ public class CartItemDAO {
         }
         return 0;
     }
+
+    private CartItem mapResultSetToCartItem(ResultSet rs) throws SQLException {
+        CartItem cartItem = new CartItem();
+        cartItem.setId(rs.getInt("id"));
+        cartItem.setUserId(rs.getInt("user_id"));
+        
+        Product product = new Product();
+        product.setId(rs.getInt("product_id"));
+        product.setName(rs.getString("name"));
+        product.setPriceCents(Money.fromBigDecimal(rs.getBigDecimal("price")));
+        product.setImagePath(rs.getString("image_url"));
+        product.setStockQuantity(rs.getInt("stock_quantity"));
+        cartItem.setProduct(product);
+        
+        cartItem.setQuantity(rs.getInt("quantity"));
+        return cartItem;
+    }
 }
\ No newline at end of file
@@ -8,21 +8,18 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class CategoryDAO {
-    private Connection connection;
+    private final DatabaseConnection dbConnection;
 
     public CategoryDAO() {
-        try {
-            connection = DatabaseConnection.getConnection();
-        } catch (SQLException e) {
-            System.err.println("Failed to establish database connection: " + e.getMessage());
-        }
+        dbConnection = DatabaseConnection.getInstance();
     }
 
     public List<Category> getAllCategories() throws SQLException {
         List<Category> categories = new ArrayList<>();
         String query = "SELECT * FROM categories ORDER BY name";
         
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
@@ -39,7 +36,8 @@ public class CategoryDAO {
     public Category getCategoryById(int categoryId) throws SQLException {
         String query = "SELECT * FROM categories WHERE id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, categoryId);
             
             try (ResultSet rs = stmt.executeQuery()) {
@@ -58,7 +56,8 @@ public class CategoryDAO {
     public boolean addCategory(Category category) throws SQLException {
         String query = "INSERT INTO categories (name, description) VALUES (?, ?)";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, category.getName());
             stmt.setString(2, category.getDescription());
             
@@ -68,6 +67,7 @@ public class CategoryDAO {
                 try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         category.setId(generatedKeys.getInt(1));
+                        CategoryRegistry.getInstance().put(category);
                         return true;
                     }
                 }
@@ -79,21 +79,31 @@ public class CategoryDAO {
     public boolean updateCategory(Category category) throws SQLException {
         String query = "UPDATE categories SET name = ?, description = ? WHERE id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, category.getName());
             stmt.setString(2, category.getDescription());
             stmt.setInt(3, category.getId());
             
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() > 0) {
+                CategoryRegistry.getInstance().put(category);
+                return true;
+            }
+            return false;
         }
     }
 
     public boolean deleteCategory(int categoryId) throws SQLException {
         String query = "DELETE FROM categories WHERE id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, categoryId);
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() > 0) {
+                CategoryRegistry.getInstance().remove(categoryId);
+                return true;
+            }
+            return false;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.ecommerce.dao;
+
+import com.ecommerce.model.Category;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-memory copy of the categories table, loaded once on first use.
+ * Holds one canonical Category per id, which every product read through ProductDAO
+ * shares instead of getting its own. The canonical instances are shared, so treat them
+ * as read-only; CategoryDAO replaces an entry with a new instance when the row changes.
+ * Lookups read an immutable snapshot and never lock.
+ */
+public class CategoryRegistry {
+    private static CategoryRegistry instance;
+
+    private final CategoryDAO categoryDAO;
+    private volatile Snapshot snapshot;
+
+    private CategoryRegistry() {
+        this.categoryDAO = new CategoryDAO();
+    }
+
+    public static synchronized CategoryRegistry getInstance() {
+        if (instance == null) {
+            instance = new CategoryRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * All categories ordered by name. The list is shared and cannot be changed.
+     */
+    public List<Category> getAll() throws SQLException {
+        return loaded().sorted;
+    }
+
+    /**
+     * The category with the given id, or null if there is none. A category the registry
+     * does not know yet, e.g. one added by another instance of the application, is read
+     * from the database and kept.
+     */
+    public Category get(int categoryId) throws SQLException {
+        Category category = loaded().byId.get(categoryId);
+        if (category != null) {
+            return category;
+        }
+
+        category = categoryDAO.getCategoryById(categoryId);
+        if (category != null) {
+            put(category);
+        }
+        return category;
+    }
+
+    /**
+     * The shared instance for a category read alongside a product row.
+     * Never queries the database, so it is safe to call while iterating a result set;
+     * if the registry is not loaded yet or its copy is out of date, a new instance is returned.
+     */
+    Category canonical(int categoryId, String name) {
+        Snapshot current = snapshot;
+        if (current != null) {
+            Category category = current.byId.get(categoryId);
+            if (category != null && Objects.equals(category.getName(), name)) {
+                return category;
+            }
+        }
+
+        Category category = new Category();
+        category.setId(categoryId);
+        category.setName(name);
+        return category;
+    }
+
+    /**
+     * Re-read every category from the database.
+     */
+    public synchronized void refresh() throws SQLException {
+        snapshot = new Snapshot(categoryDAO.getAllCategories());
+    }
+
+    /**
+     * Record a category that was just inserted or updated. A copy is kept,
+     * so the caller's instance stays its own.
+     */
+    synchronized void put(Category category) {
+        if (snapshot == null) {
+            // Not loaded yet; the first lookup will read it along with the rest
+            return;
+        }
+        Category copy = new Category();
+        copy.setId(category.getId());
+        copy.setName(category.getName());
+        copy.setDescription(category.getDescription());
+
+        Map<Integer, Category> byId = new HashMap<>(snapshot.byId);
+        byId.put(copy.getId(), copy);
+        snapshot = new Snapshot(byId.values());
+    }
+
+    synchronized void remove(int categoryId) {
+        if (snapshot == null || !snapshot.byId.containsKey(categoryId)) {
+            return;
+        }
+        Map<Integer, Category> byId = new HashMap<>(snapshot.byId);
+        byId.remove(categoryId);
+        snapshot = new Snapshot(byId.values());
+    }
+
+    private Snapshot loaded() throws SQLException {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                refresh();
+            }
+            return snapshot;
+        }
+    }
+
+    private static class Snapshot {
+        private final Map<Integer, Category> byId;
+        private final List<Category> sorted;
+
+        Snapshot(Iterable<Category> categories) {
+            Map<Integer, Category> map = new HashMap<>();
+            List<Category> list = new ArrayList<>();
+            for (Category category : categories) {
+                map.put(category.getId(), category);
+                list.add(category);
+            }
+            list.sort(Comparator.comparing(Category::getName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)));
+            this.byId = map;
+            this.sorted = Collections.unmodifiableList(list);
+        }
+    }
+}
\ No newline at end of file
@@ -3,27 +3,26 @@ package com.ecommerce.dao;
 import com.ecommerce.config.DatabaseConnection;
 import com.ecommerce.model.Order;
 import com.ecommerce.model.User;
+import com.ecommerce.util.Money;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class OrderDAO {
-    private Connection connection;
+    private final DatabaseConnection dbConnection;
 
     public OrderDAO() {
-        try {
-            connection = DatabaseConnection.getConnection();
-        } catch (SQLException e) {
-            System.err.println("Failed to establish database connection: " + e.getMessage());
-        }
+        dbConnection = DatabaseConnection.getInstance();
     }
 
     public List<Order> getOrdersByUser(int userId) throws SQLException {
         List<Order> orders = new ArrayList<>();
         String query = "SELECT * FROM orders WHERE user_id = ? ORDER BY order_date DESC";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, userId);
             
             try (ResultSet rs = stmt.executeQuery()) {
@@ -39,7 +38,8 @@ public class OrderDAO {
     public Order getOrderById(int orderId) throws SQLException {
         String query = "SELECT * FROM orders WHERE id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, orderId);
             
             try (ResultSet rs = stmt.executeQuery()) {
@@ -52,12 +52,21 @@ public class OrderDAO {
     }
 
     public int createOrder(Order order) throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            return createOrder(conn, order);
+        }
+    }
+
+    /**
+     * Insert the order on the caller's connection so it can join a larger transaction.
+     */
+    public int createOrder(Connection conn, Order order) throws SQLException {
         String query = "INSERT INTO orders (user_id, total_amount, status, order_date, shipping_address) " +
                       "VALUES (?, ?, ?, ?, ?)";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setInt(1, order.getUser().getId());
-            stmt.setDouble(2, order.getTotalAmount());
+            stmt.setBigDecimal(2, Money.toBigDecimal(order.getTotalAmountCents()));
             stmt.setString(3, order.getStatus());
             stmt.setTimestamp(4, new Timestamp(order.getOrderDate().getTime()));
             stmt.setString(5, order.getShippingAddress());
@@ -77,10 +86,51 @@ public class OrderDAO {
         return -1;
     }
 
+    /**
+     * Insert several orders in one JDBC batch on the caller's connection.
+     * Each order gets its generated id set.
+     * @return true if every order was inserted and received an id
+     */
+    public boolean createOrders(Connection conn, List<Order> orders) throws SQLException {
+        if (orders.isEmpty()) {
+            return true;
+        }
+        String query = "INSERT INTO orders (user_id, total_amount, status, order_date, shipping_address) " +
+                      "VALUES (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            for (Order order : orders) {
+                stmt.setInt(1, order.getUser().getId());
+                stmt.setBigDecimal(2, Money.toBigDecimal(order.getTotalAmountCents()));
+                stmt.setString(3, order.getStatus());
+                stmt.setTimestamp(4, new Timestamp(order.getOrderDate().getTime()));
+                stmt.setString(5, order.getShippingAddress());
+                stmt.addBatch();
+            }
+
+            // Rewritten multi-row inserts report SUCCESS_NO_INFO instead of a count per order
+            for (int result : stmt.executeBatch()) {
+                if (result <= 0 && result != Statement.SUCCESS_NO_INFO) {
+                    return false;
+                }
+            }
+
+            // Keys come back in batch order
+            int index = 0;
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                while (generatedKeys.next() && index < orders.size()) {
+                    orders.get(index++).setId(generatedKeys.getInt(1));
+                }
+            }
+            return index == orders.size();
+        }
+    }
+
     public boolean updateOrderStatus(int orderId, String newStatus) throws SQLException {
         String query = "UPDATE orders SET status = ? WHERE id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, newStatus);
             stmt.setInt(2, orderId);
             
@@ -92,7 +142,8 @@ public class OrderDAO {
         List<Order> orders = new ArrayList<>();
         String query = "SELECT * FROM orders ORDER BY order_date DESC";
         
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
@@ -103,6 +154,15 @@ public class OrderDAO {
         return orders;
     }
 
+    /**
+     * Lazily stream every order, oldest first. The stream holds a database connection
+     * until it is closed, so always use it in a try-with-resources block.
+     */
+    public Stream<Order> streamAllOrders() throws SQLException {
+        String query = "SELECT * FROM orders ORDER BY id";
+        return StreamingQuery.stream(dbConnection, query, this::mapResultSetToOrder);
+    }
+
     private Order mapResultSetToOrder(ResultSet rs) throws SQLException {
         Order order = new Order();
         order.setId(rs.getInt("id"));
@@ -111,7 +171,7 @@ public class OrderDAO {
         user.setId(rs.getInt("user_id"));
         order.setUser(user);
         
-        order.setTotalAmount(rs.getDouble("total_amount"));
+        order.setTotalAmountCents(Money.fromBigDecimal(rs.getBigDecimal("total_amount")));
         order.setStatus(rs.getString("status"));
         order.setOrderDate(rs.getTimestamp("order_date"));
         order.setShippingAddress(rs.getString("shipping_address"));
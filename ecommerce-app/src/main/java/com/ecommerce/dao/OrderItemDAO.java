@@ -3,31 +3,30 @@ package com.ecommerce.dao;
 import com.ecommerce.config.DatabaseConnection;
 import com.ecommerce.model.OrderItem;
 import com.ecommerce.model.Product;
+import com.ecommerce.util.Money;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class OrderItemDAO {
-    private Connection connection;
+    private final DatabaseConnection dbConnection;
 
     public OrderItemDAO() {
-        try {
-            connection = DatabaseConnection.getConnection();
-        } catch (SQLException e) {
-            System.err.println("Failed to establish database connection: " + e.getMessage());
-        }
+        dbConnection = DatabaseConnection.getInstance();
     }
 
     public boolean addOrderItem(OrderItem orderItem) throws SQLException {
         String query = "INSERT INTO order_items (order_id, product_id, quantity, price) " +
                       "VALUES (?, ?, ?, ?)";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setInt(1, orderItem.getOrderId());
             stmt.setInt(2, orderItem.getProduct().getId());
             stmt.setInt(3, orderItem.getQuantity());
-            stmt.setDouble(4, orderItem.getPrice());
+            stmt.setBigDecimal(4, Money.toBigDecimal(orderItem.getPricePerUnitCents()));
             
             int affectedRows = stmt.executeUpdate();
             
@@ -50,70 +49,102 @@ public class OrderItemDAO {
                       "JOIN products p ON oi.product_id = p.id " +
                       "WHERE oi.order_id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, orderId);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    OrderItem orderItem = new OrderItem();
-                    orderItem.setId(rs.getInt("id"));
-                    orderItem.setOrderId(rs.getInt("order_id"));
-                    
-                    Product product = new Product();
-                    product.setId(rs.getInt("product_id"));
-                    product.setName(rs.getString("product_name"));
-                    product.setImageUrl(rs.getString("image_url"));
-                    orderItem.setProduct(product);
-                    
-                    orderItem.setQuantity(rs.getInt("quantity"));
-                    orderItem.setPrice(rs.getDouble("price"));
-                    
-                    orderItems.add(orderItem);
+                    orderItems.add(mapResultSetToOrderItem(rs));
                 }
             }
         }
         return orderItems;
     }
 
+    /**
+     * Hand every order item to the consumer, one row at a time, without building a list.
+     */
+    public void streamAll(Consumer<OrderItem> consumer) throws SQLException {
+        String query = "SELECT oi.*, p.name as product_name, p.image_url " +
+                      "FROM order_items oi " +
+                      "JOIN products p ON oi.product_id = p.id " +
+                      "ORDER BY oi.order_id, oi.id";
+        
+        StreamingQuery.forEach(dbConnection, query, this::mapResultSetToOrderItem, consumer);
+    }
+
     public boolean deleteOrderItems(int orderId) throws SQLException {
         String query = "DELETE FROM order_items WHERE order_id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, orderId);
             return stmt.executeUpdate() > 0;
         }
     }
 
     public boolean addBatchOrderItems(List<OrderItem> orderItems) throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            
+            try {
+                boolean inserted = addBatchOrderItems(conn, orderItems);
+                conn.commit();
+                return inserted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Insert the items as one batch on the caller's connection, without committing,
+     * so they can join a larger transaction.
+     */
+    public boolean addBatchOrderItems(Connection conn, List<OrderItem> orderItems) throws SQLException {
         String query = "INSERT INTO order_items (order_id, product_id, quantity, price) " +
                       "VALUES (?, ?, ?, ?)";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            connection.setAutoCommit(false);
-            
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
             for (OrderItem item : orderItems) {
                 stmt.setInt(1, item.getOrderId());
                 stmt.setInt(2, item.getProduct().getId());
                 stmt.setInt(3, item.getQuantity());
-                stmt.setDouble(4, item.getPrice());
+                stmt.setBigDecimal(4, Money.toBigDecimal(item.getPricePerUnitCents()));
                 stmt.addBatch();
             }
             
             int[] results = stmt.executeBatch();
-            connection.commit();
-            connection.setAutoCommit(true);
             
             // Check if all items were inserted
             for (int result : results) {
-                if (result <= 0) {
+                if (result <= 0 && result != Statement.SUCCESS_NO_INFO) {
                     return false;
                 }
             }
             return true;
-        } catch (SQLException e) {
-            connection.rollback();
-            connection.setAutoCommit(true);
-            throw e;
         }
     }
+
+    private OrderItem mapResultSetToOrderItem(ResultSet rs) throws SQLException {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setId(rs.getInt("id"));
+        orderItem.setOrderId(rs.getInt("order_id"));
+        
+        Product product = new Product();
+        product.setId(rs.getInt("product_id"));
+        product.setName(rs.getString("product_name"));
+        product.setImagePath(rs.getString("image_url"));
+        orderItem.setProduct(product);
+        
+        orderItem.setQuantity(rs.getInt("quantity"));
+        orderItem.setPricePerUnitCents(Money.fromBigDecimal(rs.getBigDecimal("price")));
+        orderItem.calculateSubtotal();
+        
+        return orderItem;
+    }
 }
\ No newline at end of file
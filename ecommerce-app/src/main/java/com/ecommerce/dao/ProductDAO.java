@@ -2,29 +2,51 @@ package com.ecommerce.dao;
 
 import com.ecommerce.config.DatabaseConnection;
 import com.ecommerce.model.Product;
-import com.ecommerce.model.Category;
+import com.ecommerce.model.ProductCursor;
+import com.ecommerce.model.ProductPage;
+import com.ecommerce.util.Money;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class ProductDAO {
-    private Connection connection;
+    // Largest IN (...) list sent in one query by getProductsByIds
+    private static final int MAX_IDS_PER_QUERY = 256;
 
-    public ProductDAO() {
-        try {
-            connection = DatabaseConnection.getConnection();
-        } catch (SQLException e) {
-            System.err.println("Failed to establish database connection: " + e.getMessage());
+    // Orderings supported by keyset pagination; product id breaks ties
+    public enum SortKey {
+        ID(null),
+        NAME("p.name"),
+        PRICE("p.price");
+
+        private final String column;
+
+        SortKey(String column) {
+            this.column = column;
         }
     }
 
+    private final DatabaseConnection dbConnection;
+    private final CategoryRegistry categoryRegistry;
+
+    public ProductDAO() {
+        dbConnection = DatabaseConnection.getInstance();
+        categoryRegistry = CategoryRegistry.getInstance();
+    }
+
     public List<Product> getAllProducts() throws SQLException {
         List<Product> products = new ArrayList<>();
         String query = "SELECT p.*, c.name as category_name FROM products p " +
                       "LEFT JOIN categories c ON p.category_id = c.id";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query);
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query);
              ResultSet rs = stmt.executeQuery()) {
             
             while (rs.next()) {
@@ -35,13 +57,25 @@ public class ProductDAO {
         return products;
     }
 
+    /**
+     * Hand every product to the consumer, one row at a time, without building a list.
+     */
+    public void streamAll(Consumer<Product> consumer) throws SQLException {
+        String query = "SELECT p.*, c.name as category_name FROM products p " +
+                      "LEFT JOIN categories c ON p.category_id = c.id " +
+                      "ORDER BY p.id";
+        
+        StreamingQuery.forEach(dbConnection, query, this::mapResultSetToProduct, consumer);
+    }
+
     public List<Product> getProductsByCategory(int categoryId) throws SQLException {
         List<Product> products = new ArrayList<>();
         String query = "SELECT p.*, c.name as category_name FROM products p " +
                       "LEFT JOIN categories c ON p.category_id = c.id " +
                       "WHERE p.category_id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, categoryId);
             
             try (ResultSet rs = stmt.executeQuery()) {
@@ -55,32 +89,139 @@ public class ProductDAO {
     }
 
     public List<Product> searchProducts(String keyword) throws SQLException {
+        return searchProducts(keyword, null, 0);
+    }
+
+    /**
+     * Scan names and descriptions for the keyword. The scan can be stopped early through
+     * the handle, and is stopped by the server once it runs past the timeout.
+     * @param handle Handle to cancel the query from another thread, or null
+     * @param timeoutSeconds Longest the query may run, or 0 for no limit
+     */
+    public List<Product> searchProducts(String keyword, QueryHandle handle, int timeoutSeconds) throws SQLException {
         List<Product> products = new ArrayList<>();
         String query = "SELECT p.*, c.name as category_name FROM products p " +
                       "LEFT JOIN categories c ON p.category_id = c.id " +
                       "WHERE p.name LIKE ? OR p.description LIKE ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             String searchPattern = "%" + keyword + "%";
             stmt.setString(1, searchPattern);
             stmt.setString(2, searchPattern);
+            // Set every time; the statement may come from the cache with another caller's timeout
+            stmt.setQueryTimeout(timeoutSeconds);
             
+            if (handle != null) {
+                handle.attach(stmt);
+            }
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     Product product = mapResultSetToProduct(rs);
                     products.add(product);
                 }
+            } finally {
+                if (handle != null) {
+                    handle.detach();
+                }
             }
         }
         return products;
     }
 
+    /**
+     * Load one page of products using keyset pagination, so the cost of a page does not
+     * depend on how deep into the catalog it is.
+     * @param categoryId Category to filter by, or 0 for all products
+     * @param sortKey Ordering of the listing
+     * @param cursor Boundary row to continue from, or null for the first (or last) page
+     * @param forward true to read the rows after the cursor, false for the rows before it
+     * @param pageSize Maximum number of products to return
+     */
+    public ProductPage getProductPage(int categoryId, SortKey sortKey, ProductCursor cursor,
+                                      boolean forward, int pageSize) throws SQLException {
+        StringBuilder query = new StringBuilder("SELECT p.*, c.name as category_name FROM products p " +
+                      "LEFT JOIN categories c ON p.category_id = c.id WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        
+        if (categoryId > 0) {
+            query.append(" AND p.category_id = ?");
+            params.add(categoryId);
+        }
+        
+        if (cursor != null) {
+            String op = forward ? ">" : "<";
+            if (sortKey.column == null) {
+                query.append(" AND p.id ").append(op).append(" ?");
+            } else {
+                query.append(" AND (").append(sortKey.column).append(' ').append(op).append(" ? OR (")
+                     .append(sortKey.column).append(" = ? AND p.id ").append(op).append(" ?))");
+                params.add(cursor.getSortValue());
+                params.add(cursor.getSortValue());
+            }
+            params.add(cursor.getProductId());
+        }
+        
+        String direction = forward ? "ASC" : "DESC";
+        query.append(" ORDER BY ");
+        if (sortKey.column != null) {
+            query.append(sortKey.column).append(' ').append(direction).append(", ");
+        }
+        query.append("p.id ").append(direction).append(" LIMIT ?");
+        // Read one extra row to find out whether there is another page
+        params.add(pageSize + 1);
+        
+        List<Product> products = new ArrayList<>();
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapResultSetToProduct(rs));
+                }
+            }
+        }
+        
+        boolean hasMore = products.size() > pageSize;
+        if (hasMore) {
+            products.remove(products.size() - 1);
+        }
+        if (!forward) {
+            Collections.reverse(products);
+        }
+        
+        if (products.isEmpty()) {
+            return new ProductPage(products, null, null, !forward && cursor != null, forward && cursor != null);
+        }
+        
+        ProductCursor first = toCursor(products.get(0), sortKey);
+        ProductCursor last = toCursor(products.get(products.size() - 1), sortKey);
+        boolean hasNext = forward ? hasMore : cursor != null;
+        boolean hasPrevious = forward ? cursor != null : hasMore;
+        return new ProductPage(products, first, last, hasNext, hasPrevious);
+    }
+
+    private ProductCursor toCursor(Product product, SortKey sortKey) {
+        switch (sortKey) {
+            case NAME:
+                return new ProductCursor(product.getName(), product.getId());
+            case PRICE:
+                return new ProductCursor(Money.toBigDecimal(product.getPriceCents()), product.getId());
+            default:
+                return new ProductCursor(null, product.getId());
+        }
+    }
+
     public Product getProductById(int productId) throws SQLException {
         String query = "SELECT p.*, c.name as category_name FROM products p " +
                       "LEFT JOIN categories c ON p.category_id = c.id " +
                       "WHERE p.id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, productId);
             
             try (ResultSet rs = stmt.executeQuery()) {
@@ -92,17 +233,64 @@ public class ProductDAO {
         return null;
     }
 
+    /**
+     * Load many products in as few round trips as possible: one IN (...) query per
+     * chunk of up to MAX_IDS_PER_QUERY ids. Missing ids are simply absent from the map.
+     */
+    public Map<Integer, Product> getProductsByIds(int[] productIds) throws SQLException {
+        Map<Integer, Product> products = new HashMap<>();
+        if (productIds.length == 0) {
+            return products;
+        }
+        
+        try (Connection conn = dbConnection.getConnection()) {
+            for (int start = 0; start < productIds.length; start += MAX_IDS_PER_QUERY) {
+                int count = Math.min(MAX_IDS_PER_QUERY, productIds.length - start);
+                // Round the placeholder count up to a power of two so only a handful of
+                // distinct SQL strings exist and the statement cache stays effective
+                int slots = Integer.highestOneBit(count);
+                if (slots < count) {
+                    slots <<= 1;
+                }
+                
+                StringBuilder query = new StringBuilder("SELECT p.*, c.name as category_name FROM products p " +
+                              "LEFT JOIN categories c ON p.category_id = c.id " +
+                              "WHERE p.id IN (");
+                for (int i = 0; i < slots; i++) {
+                    query.append(i == 0 ? "?" : ", ?");
+                }
+                query.append(')');
+                
+                try (PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+                    for (int i = 0; i < slots; i++) {
+                        // Pad unused slots by repeating the last id of the chunk
+                        stmt.setInt(i + 1, productIds[start + Math.min(i, count - 1)]);
+                    }
+                    
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Product product = mapResultSetToProduct(rs);
+                            products.put(product.getId(), product);
+                        }
+                    }
+                }
+            }
+        }
+        return products;
+    }
+
     public boolean addProduct(Product product) throws SQLException {
         String query = "INSERT INTO products (name, description, price, stock_quantity, category_id, image_url) " +
                       "VALUES (?, ?, ?, ?, ?, ?)";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, product.getName());
             stmt.setString(2, product.getDescription());
-            stmt.setDouble(3, product.getPrice());
+            stmt.setBigDecimal(3, Money.toBigDecimal(product.getPriceCents()));
             stmt.setInt(4, product.getStockQuantity());
             stmt.setInt(5, product.getCategory().getId());
-            stmt.setString(6, product.getImageUrl());
+            stmt.setString(6, product.getImagePath());
             
             int affectedRows = stmt.executeUpdate();
             
@@ -122,13 +310,14 @@ public class ProductDAO {
         String query = "UPDATE products SET name = ?, description = ?, price = ?, " +
                       "stock_quantity = ?, category_id = ?, image_url = ? WHERE id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, product.getName());
             stmt.setString(2, product.getDescription());
-            stmt.setDouble(3, product.getPrice());
+            stmt.setBigDecimal(3, Money.toBigDecimal(product.getPriceCents()));
             stmt.setInt(4, product.getStockQuantity());
             stmt.setInt(5, product.getCategory().getId());
-            stmt.setString(6, product.getImageUrl());
+            stmt.setString(6, product.getImagePath());
             stmt.setInt(7, product.getId());
             
             return stmt.executeUpdate() > 0;
@@ -138,7 +327,8 @@ public class ProductDAO {
     public boolean deleteProduct(int productId) throws SQLException {
         String query = "DELETE FROM products WHERE id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, productId);
             return stmt.executeUpdate() > 0;
         }
@@ -147,26 +337,147 @@ public class ProductDAO {
     public boolean updateStock(int productId, int newQuantity) throws SQLException {
         String query = "UPDATE products SET stock_quantity = ? WHERE id = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, newQuantity);
             stmt.setInt(2, productId);
             return stmt.executeUpdate() > 0;
         }
     }
 
+    /**
+     * Atomically add a (possibly negative) amount to a product's stock.
+     * @return false if the product does not exist or the stock would go below zero
+     */
+    public boolean adjustStock(int productId, int quantityChange) throws SQLException {
+        String query = "UPDATE products SET stock_quantity = stock_quantity + ? " +
+                      "WHERE id = ? AND stock_quantity + ? >= 0";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, quantityChange);
+            stmt.setInt(2, productId);
+            stmt.setInt(3, quantityChange);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Decrement stock for several products in a single JDBC batch. Each line only
+     * applies if enough stock is left at the moment it runs, so concurrent checkouts
+     * can never oversell or overwrite each other's decrements.
+     * The caller owns the connection and its transaction, and should roll back if
+     * any line failed. Pass lines sorted by product id so that concurrent batches
+     * lock rows in the same order.
+     * @return Indexes (into productIds) of the lines that could not be applied; empty if all succeeded
+     */
+    public int[] decrementStock(Connection conn, int[] productIds, int[] quantities) throws SQLException {
+        if (productIds.length != quantities.length) {
+            throw new IllegalArgumentException("productIds and quantities must have the same length");
+        }
+        String query = "UPDATE products SET stock_quantity = stock_quantity - ? " +
+                      "WHERE id = ? AND stock_quantity >= ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < productIds.length; i++) {
+                stmt.setInt(1, quantities[i]);
+                stmt.setInt(2, productIds[i]);
+                stmt.setInt(3, quantities[i]);
+                stmt.addBatch();
+            }
+            
+            int[] results = stmt.executeBatch();
+            
+            // 0 rows means the product is gone or short on stock. UPDATE batches are sent as
+            // multi-statements when rewriteBatchedStatements is on, so each line still gets
+            // its own count; SUCCESS_NO_INFO means the driver ran it without counting rows.
+            int[] failed = new int[results.length];
+            int failedCount = 0;
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] <= 0 && results[i] != Statement.SUCCESS_NO_INFO) {
+                    failed[failedCount++] = i;
+                }
+            }
+            return Arrays.copyOf(failed, failedCount);
+        }
+    }
+
+    /**
+     * All-or-nothing variant of decrementStock that runs in its own transaction.
+     * @return Indexes of the lines that could not be applied; if not empty, nothing was changed
+     */
+    public int[] decrementStock(int[] productIds, int[] quantities) throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int[] failed = decrementStock(conn, productIds, quantities);
+                if (failed.length == 0) {
+                    conn.commit();
+                } else {
+                    conn.rollback();
+                }
+                return failed;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Apply several independent stock changes in a single JDBC batch and transaction.
+     * Unlike decrementStock, lines that would take stock below zero are skipped while
+     * the rest are still committed.
+     * @return Indexes (into productIds) of the lines that could not be applied
+     */
+    public int[] adjustStockBatch(int[] productIds, int[] quantityChanges) throws SQLException {
+        if (productIds.length != quantityChanges.length) {
+            throw new IllegalArgumentException("productIds and quantityChanges must have the same length");
+        }
+        String query = "UPDATE products SET stock_quantity = stock_quantity + ? " +
+                      "WHERE id = ? AND stock_quantity + ? >= 0";
+
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                for (int i = 0; i < productIds.length; i++) {
+                    stmt.setInt(1, quantityChanges[i]);
+                    stmt.setInt(2, productIds[i]);
+                    stmt.setInt(3, quantityChanges[i]);
+                    stmt.addBatch();
+                }
+
+                int[] results = stmt.executeBatch();
+                conn.commit();
+
+                int[] failed = new int[results.length];
+                int failedCount = 0;
+                for (int i = 0; i < results.length; i++) {
+                    if (results[i] <= 0 && results[i] != Statement.SUCCESS_NO_INFO) {
+                        failed[failedCount++] = i;
+                    }
+                }
+                return Arrays.copyOf(failed, failedCount);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
     private Product mapResultSetToProduct(ResultSet rs) throws SQLException {
         Product product = new Product();
         product.setId(rs.getInt("id"));
         product.setName(rs.getString("name"));
         product.setDescription(rs.getString("description"));
-        product.setPrice(rs.getDouble("price"));
+        product.setPriceCents(Money.fromBigDecimal(rs.getBigDecimal("price")));
         product.setStockQuantity(rs.getInt("stock_quantity"));
-        product.setImageUrl(rs.getString("image_url"));
-        
-        Category category = new Category();
-        category.setId(rs.getInt("category_id"));
-        category.setName(rs.getString("category_name"));
-        product.setCategory(category);
+        product.setImagePath(rs.getString("image_url"));
+        product.setCategory(categoryRegistry.canonical(rs.getInt("category_id"), rs.getString("category_name")));
         
         return product;
     }
@@ -0,0 +1,50 @@
+package com.ecommerce.dao;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Lets another thread cancel a query a DAO method is running, e.g. a search that the user
+ * has already typed past. Cancelling before the query starts makes it fail straight away;
+ * cancelling while it runs calls Statement.cancel, so the database stops the scan instead of
+ * finishing it for nobody. Either way the DAO method throws a SQLException.
+ */
+public class QueryHandle {
+    private Statement statement;
+    private boolean cancelled;
+
+    synchronized void attach(Statement statement) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query cancelled");
+        }
+        this.statement = statement;
+    }
+
+    synchronized void detach() {
+        statement = null;
+    }
+
+    /**
+     * Stop the query. The driver may need a round trip to the server for this, so avoid
+     * calling it on the Event Dispatch Thread.
+     */
+    public synchronized void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        // Under the lock, so the statement cannot be detached and handed to another query
+        // from the statement cache while it is being cancelled
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                // The query finished or its connection closed in the meantime
+            }
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.ecommerce.dao;
+
+import com.ecommerce.config.DatabaseConnection;
+
+import java.sql.*;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Helpers for reading large result sets row by row using MySQL's streaming fetch mode,
+ * so memory use stays flat no matter how many rows the query returns.
+ * While a result is being streamed its connection cannot run any other statement,
+ * so each streaming query holds its own pooled connection until it is closed.
+ */
+class StreamingQuery {
+
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private StreamingQuery() {}
+
+    /**
+     * Prepare a forward-only, read-only statement that the MySQL driver streams row by row.
+     */
+    static PreparedStatement prepare(Connection conn, String query) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(query,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(Integer.MIN_VALUE);
+        return stmt;
+    }
+
+    /**
+     * Run the query and hand every row to the consumer before returning.
+     */
+    static <T> void forEach(DatabaseConnection dbConnection, String query, RowMapper<T> mapper,
+                            Consumer<? super T> consumer) throws SQLException {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = prepare(conn, query);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                consumer.accept(mapper.map(rs));
+            }
+        }
+    }
+
+    /**
+     * Run the query and return a lazy stream over its rows. The stream owns the
+     * connection, so callers must close it (try-with-resources) to release it.
+     * SQL errors while reading surface as UncheckedSQLException.
+     */
+    static <T> Stream<T> stream(DatabaseConnection dbConnection, String query, RowMapper<T> mapper)
+            throws SQLException {
+        Connection conn = dbConnection.getConnection();
+        PreparedStatement stmt = null;
+        ResultSet rs;
+        try {
+            stmt = prepare(conn, query);
+            rs = stmt.executeQuery();
+        } catch (SQLException e) {
+            closeAll(null, stmt, conn);
+            throw e;
+        }
+        
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(rs));
+                    return true;
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+        
+        PreparedStatement openStmt = stmt;
+        return StreamSupport.stream(rows, false).onClose(() -> closeAll(rs, openStmt, conn));
+    }
+
+    private static void closeAll(ResultSet rs, Statement stmt, Connection conn) {
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+            if (stmt != null) {
+                stmt.close();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error closing streaming query: " + e.getMessage());
+        } finally {
+            DatabaseConnection.closeConnection(conn);
+        }
+    }
+}
\ No newline at end of file
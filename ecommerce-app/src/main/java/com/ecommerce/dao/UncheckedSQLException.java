@@ -0,0 +1,18 @@
+package com.ecommerce.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown from DAO streams when a SQL error happens while rows are being consumed,
+ * where a checked SQLException cannot be thrown.
+ */
+public class UncheckedSQLException extends RuntimeException {
+    public UncheckedSQLException(SQLException cause) {
+        super(cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
\ No newline at end of file
@@ -2,21 +2,32 @@ package com.ecommerce.dao;
 
 import com.ecommerce.config.DatabaseConnection;
 import com.ecommerce.model.User;
+import com.ecommerce.util.BloomFilter;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
 public class UserDAO {
+    // Held while the email filter is rebuilt so concurrent callers don't each read the table
+    private static final Object FILTER_LOCK = new Object();
+
     private DatabaseConnection dbConnection;
+    private final UserLookupCache lookupCache;
     
     public UserDAO() {
         dbConnection = DatabaseConnection.getInstance();
+        lookupCache = UserLookupCache.getInstance();
     }
     
     public User findByEmail(String email) {
+        User user = lookupCache.get(email);
+        if (user != null) {
+            return user;
+        }
+        
         String sql = "SELECT * FROM users WHERE email = ?";
-        User user = null;
+        long generation = lookupCache.generation();
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -26,6 +37,7 @@ public class UserDAO {
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     user = mapResultSetToUser(rs);
+                    lookupCache.put(user, generation);
                 }
             }
         } catch (SQLException e) {
@@ -35,6 +47,73 @@ public class UserDAO {
         return user;
     }
     
+    /**
+     * Whether a user with this email exists. An email the filter has never seen is
+     * answered without a query; the rest are checked in the cache and then the table.
+     */
+    public boolean emailExists(String email) {
+        ensureEmailFilter();
+        if (!lookupCache.mightExist(email)) {
+            return false;
+        }
+        if (lookupCache.get(email) != null) {
+            return true;
+        }
+        
+        String sql = "SELECT 1 FROM users WHERE email = ? LIMIT 1";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, email);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error checking email: " + e.getMessage());
+            // Report it as taken so a failed check never lets a duplicate through
+            return true;
+        }
+    }
+    
+    private void ensureEmailFilter() {
+        if (!lookupCache.needsRebuild()) {
+            return;
+        }
+        synchronized (FILTER_LOCK) {
+            if (!lookupCache.needsRebuild()) {
+                return;
+            }
+            
+            try (Connection conn = dbConnection.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                int userCount = 0;
+                try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
+                    if (rs.next()) {
+                        userCount = rs.getInt(1);
+                    }
+                }
+                
+                BloomFilter filter = lookupCache.startRebuild(userCount);
+                try (ResultSet rs = stmt.executeQuery("SELECT email FROM users")) {
+                    int loaded = 0;
+                    while (rs.next()) {
+                        filter.put(UserLookupCache.key(rs.getString(1)));
+                        loaded++;
+                    }
+                    lookupCache.finishRebuild(filter, loaded);
+                } catch (SQLException e) {
+                    lookupCache.abandonRebuild(filter);
+                    throw e;
+                }
+            } catch (SQLException e) {
+                // Without a filter every check goes to the database
+                System.err.println("Error loading user emails: " + e.getMessage());
+            }
+        }
+    }
+    
     public User findById(int userId) {
         String sql = "SELECT * FROM users WHERE user_id = ?";
         User user = null;
@@ -97,6 +176,7 @@ public class UserDAO {
                 }
             }
             
+            lookupCache.emailAdded(user.getEmail());
             return true;
         } catch (SQLException e) {
             System.err.println("Error creating user: " + e.getMessage());
@@ -117,7 +197,12 @@ public class UserDAO {
             stmt.setInt(5, user.getUserId());
             
             int affectedRows = stmt.executeUpdate();
-            return affectedRows > 0;
+            if (affectedRows > 0) {
+                lookupCache.userRemoved(user.getUserId());
+                lookupCache.emailAdded(user.getEmail());
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
             System.err.println("Error updating user: " + e.getMessage());
             return false;
@@ -133,7 +218,11 @@ public class UserDAO {
             stmt.setInt(1, userId);
             
             int affectedRows = stmt.executeUpdate();
-            return affectedRows > 0;
+            if (affectedRows > 0) {
+                lookupCache.userRemoved(userId);
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
             System.err.println("Error deleting user: " + e.getMessage());
             return false;
@@ -0,0 +1,219 @@
+package com.ecommerce.dao;
+
+import com.ecommerce.config.DatabaseConnection;
+import com.ecommerce.model.User;
+import com.ecommerce.util.BloomFilter;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory state behind UserDAO's lookups by email: a Bloom filter over every email in
+ * the users table, so most checks for an unused email need no query, and a bounded cache
+ * of users recently found by email. UserDAO fills both and keeps them in step with its
+ * create, update and delete; emails are compared lower-cased, as the column's collation does.
+ * Other instances of the application write the same table, so cached users expire after a
+ * short time to live, and the filter is only trusted to say an email is free where the
+ * UNIQUE constraint on users.email backs it up.
+ */
+public class UserLookupCache {
+    private static UserLookupCache instance;
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final double falsePositiveRate;
+    private final ConcurrentHashMap<String, Entry> usersByEmail = new ConcurrentHashMap<>();
+    // Bumped by every userRemoved, so a lookup that raced with a change does not cache what it read
+    private final AtomicLong generation = new AtomicLong();
+
+    // Null until the first load; replaced wholesale when rebuilt
+    private volatile BloomFilter emails;
+    private BloomFilter rebuilding;
+    private int insertions;
+    // Emails deleted or changed since the filter was built; their bits are still set
+    private final AtomicInteger staleEmails = new AtomicInteger();
+
+    private final LongAdder filterNegatives = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder databaseLookups = new LongAdder();
+
+    public UserLookupCache(int maxSize, long ttlMillis, double falsePositiveRate) {
+        if (maxSize < 1 || ttlMillis < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid user lookup settings: maxSize=" + maxSize
+                    + ", ttl=" + ttlMillis + "ms, falsePositiveRate=" + falsePositiveRate);
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public static synchronized UserLookupCache getInstance() {
+        if (instance == null) {
+            DatabaseConnection config = DatabaseConnection.getInstance();
+            instance = new UserLookupCache(
+                    config.getIntProperty("user.lookup.cacheSize", 10000),
+                    config.getLongProperty("user.lookup.cacheTtlMillis", 30000),
+                    config.getIntProperty("user.lookup.falsePositivePerMillion", 10000) / 1000000.0);
+        }
+        return instance;
+    }
+
+    static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * False only if the email is certainly not in the users table.
+     */
+    boolean mightExist(String email) {
+        BloomFilter filter = emails;
+        if (filter == null || filter.mightContain(key(email))) {
+            return true;
+        }
+        filterNegatives.increment();
+        return false;
+    }
+
+    /**
+     * Whether the filter must be (re)built before it can answer: never loaded, filled past the
+     * size it was built for, or holding too many emails that no longer exist.
+     */
+    synchronized boolean needsRebuild() {
+        BloomFilter filter = emails;
+        return filter == null
+                || insertions > filter.getExpectedInsertions()
+                || staleEmails.get() > filter.getExpectedInsertions() / 10;
+    }
+
+    /**
+     * Start a rebuild sized for the given number of users. Emails added until finishRebuild
+     * go into both filters, so one created while the table is being read is not lost.
+     */
+    synchronized BloomFilter startRebuild(int userCount) {
+        rebuilding = new BloomFilter(Math.max(1024, userCount * 2), falsePositiveRate);
+        return rebuilding;
+    }
+
+    synchronized void finishRebuild(BloomFilter filter, int userCount) {
+        if (rebuilding != filter) {
+            return;
+        }
+        rebuilding = null;
+        insertions = userCount;
+        staleEmails.set(0);
+        emails = filter;
+    }
+
+    synchronized void abandonRebuild(BloomFilter filter) {
+        if (rebuilding == filter) {
+            rebuilding = null;
+        }
+    }
+
+    /**
+     * A copy of the cached user with this email, or null if it is not cached.
+     */
+    User get(String email) {
+        String key = key(email);
+        Entry entry = usersByEmail.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.loadedAt >= ttlMillis) {
+            usersByEmail.remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            databaseLookups.increment();
+            return null;
+        }
+        cacheHits.increment();
+        return copyOf(entry.user);
+    }
+
+    /**
+     * Read before querying the database, and pass to put with the user found.
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Cache a user read from the database, unless a user was changed or deleted since
+     * generation() was read; the row read may then already be out of date.
+     */
+    synchronized void put(User user, long readGeneration) {
+        if (generation.get() != readGeneration) {
+            return;
+        }
+        if (usersByEmail.size() >= maxSize) {
+            // Drop an arbitrary entry; ConcurrentHashMap has no cheap access order and any user will do
+            Iterator<String> it = usersByEmail.keySet().iterator();
+            if (it.hasNext()) {
+                usersByEmail.remove(it.next());
+            }
+        }
+        usersByEmail.put(key(user.getEmail()), new Entry(copyOf(user), System.currentTimeMillis()));
+    }
+
+    /**
+     * Record an email that was just inserted or given to a user.
+     */
+    synchronized void emailAdded(String email) {
+        String key = key(email);
+        if (emails != null) {
+            emails.put(key);
+            insertions++;
+        }
+        if (rebuilding != null) {
+            rebuilding.put(key);
+        }
+    }
+
+    /**
+     * Forget a user that was changed or deleted. Its old email's bits stay in the filter,
+     * so it counts towards the next rebuild.
+     */
+    synchronized void userRemoved(int userId) {
+        generation.incrementAndGet();
+        usersByEmail.values().removeIf(entry -> entry.user.getUserId() == userId);
+        staleEmails.incrementAndGet();
+    }
+
+    private static User copyOf(User user) {
+        User copy = new User();
+        copy.setUserId(user.getUserId());
+        copy.setEmail(user.getEmail());
+        copy.setPassword(user.getPassword());
+        copy.setFullName(user.getFullName());
+        copy.setRole(user.getRole());
+        copy.setCreatedAt(user.getCreatedAt());
+        return copy;
+    }
+
+    /**
+     * Number of email checks answered by the Bloom filter alone.
+     */
+    public long getFilterNegatives() {
+        return filterNegatives.sum();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getDatabaseLookups() {
+        return databaseLookups.sum();
+    }
+
+    private static class Entry {
+        private final User user;
+        private final long loadedAt;
+
+        Entry(User user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
\ No newline at end of file
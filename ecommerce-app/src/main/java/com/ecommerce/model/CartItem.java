@@ -1,6 +1,7 @@
 package com.ecommerce.model;
 
-import java.math.BigDecimal;
+import com.ecommerce.util.Money;
+
 import java.sql.Timestamp;
 
 public class CartItem {
@@ -31,6 +32,15 @@ public class CartItem {
         this.cartItemId = cartItemId;
     }
     
+    // Shorthand for the cartItemId used by the DAOs, services and UI
+    public int getId() {
+        return cartItemId;
+    }
+    
+    public void setId(int id) {
+        this.cartItemId = id;
+    }
+    
     public int getUserId() {
         return userId;
     }
@@ -72,10 +82,10 @@ public class CartItem {
     }
     
     // Helper methods
-    public BigDecimal getSubtotal() {
+    public long getSubtotalCents() {
         if (product != null) {
-            return product.getPrice().multiply(new BigDecimal(quantity));
+            return Money.multiply(product.getPriceCents(), quantity);
         }
-        return BigDecimal.ZERO;
+        return 0;
     }
 }
\ No newline at end of file
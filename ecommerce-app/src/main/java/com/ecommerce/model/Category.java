@@ -24,6 +24,15 @@ public class Category {
         this.categoryId = categoryId;
     }
     
+    // Shorthand for the categoryId used by the DAOs, services and UI
+    public int getId() {
+        return categoryId;
+    }
+    
+    public void setId(int id) {
+        this.categoryId = id;
+    }
+    
     public String getName() {
         return name;
     }
@@ -1,6 +1,7 @@
 package com.ecommerce.model;
 
-import java.math.BigDecimal;
+import com.ecommerce.util.Money;
+
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
@@ -10,7 +11,7 @@ public class Order {
     private int userId;
     private Timestamp orderDate;
     private String status;
-    private BigDecimal totalAmount;
+    private long totalAmountCents;
     private String shippingAddress;
     private List<OrderItem> orderItems;
     private User user; // To hold user information
@@ -21,12 +22,12 @@ public class Order {
     }
     
     public Order(int orderId, int userId, Timestamp orderDate, String status, 
-                BigDecimal totalAmount, String shippingAddress) {
+                long totalAmountCents, String shippingAddress) {
         this.orderId = orderId;
         this.userId = userId;
         this.orderDate = orderDate;
         this.status = status;
-        this.totalAmount = totalAmount;
+        this.totalAmountCents = totalAmountCents;
         this.shippingAddress = shippingAddress;
         this.orderItems = new ArrayList<>();
     }
@@ -40,6 +41,15 @@ public class Order {
         this.orderId = orderId;
     }
     
+    // Shorthand for the orderId used by the DAOs, services and UI
+    public int getId() {
+        return orderId;
+    }
+    
+    public void setId(int id) {
+        this.orderId = id;
+    }
+    
     public int getUserId() {
         return userId;
     }
@@ -64,12 +74,12 @@ public class Order {
         this.status = status;
     }
     
-    public BigDecimal getTotalAmount() {
-        return totalAmount;
+    public long getTotalAmountCents() {
+        return totalAmountCents;
     }
     
-    public void setTotalAmount(BigDecimal totalAmount) {
-        this.totalAmount = totalAmount;
+    public void setTotalAmountCents(long totalAmountCents) {
+        this.totalAmountCents = totalAmountCents;
     }
     
     public String getShippingAddress() {
@@ -101,10 +111,10 @@ public class Order {
     }
     
     // Calculate total amount from order items
-    public BigDecimal calculateTotalAmount() {
-        BigDecimal total = BigDecimal.ZERO;
+    public long calculateTotalAmountCents() {
+        long total = 0;
         for (OrderItem item : orderItems) {
-            total = total.add(item.getSubtotal());
+            total = Money.add(total, item.getSubtotalCents());
         }
         return total;
     }
@@ -1,28 +1,28 @@
 // OrderItem model
 package com.ecommerce.model;
 
-import java.math.BigDecimal;
+import com.ecommerce.util.Money;
 
 public class OrderItem {
     private int orderItemId;
     private int orderId;
     private int productId;
     private int quantity;
-    private BigDecimal pricePerUnit;
-    private BigDecimal subtotal;
+    private long pricePerUnitCents;
+    private long subtotalCents;
     private Product product; // To hold product information
     
     // Constructors
     public OrderItem() {}
     
     public OrderItem(int orderItemId, int orderId, int productId, int quantity, 
-                    BigDecimal pricePerUnit, BigDecimal subtotal) {
+                    long pricePerUnitCents, long subtotalCents) {
         this.orderItemId = orderItemId;
         this.orderId = orderId;
         this.productId = productId;
         this.quantity = quantity;
-        this.pricePerUnit = pricePerUnit;
-        this.subtotal = subtotal;
+        this.pricePerUnitCents = pricePerUnitCents;
+        this.subtotalCents = subtotalCents;
     }
     
     // Getters and Setters
@@ -34,6 +34,15 @@ public class OrderItem {
         this.orderItemId = orderItemId;
     }
     
+    // Shorthand for the orderItemId used by the DAOs, services and UI
+    public int getId() {
+        return orderItemId;
+    }
+    
+    public void setId(int id) {
+        this.orderItemId = id;
+    }
+    
     public int getOrderId() {
         return orderId;
     }
@@ -58,20 +67,20 @@ public class OrderItem {
         this.quantity = quantity;
     }
     
-    public BigDecimal getPricePerUnit() {
-        return pricePerUnit;
+    public long getPricePerUnitCents() {
+        return pricePerUnitCents;
     }
     
-    public void setPricePerUnit(BigDecimal pricePerUnit) {
-        this.pricePerUnit = pricePerUnit;
+    public void setPricePerUnitCents(long pricePerUnitCents) {
+        this.pricePerUnitCents = pricePerUnitCents;
     }
     
-    public BigDecimal getSubtotal() {
-        return subtotal;
+    public long getSubtotalCents() {
+        return subtotalCents;
     }
     
-    public void setSubtotal(BigDecimal subtotal) {
-        this.subtotal = subtotal;
+    public void setSubtotalCents(long subtotalCents) {
+        this.subtotalCents = subtotalCents;
     }
     
     public Product getProduct() {
@@ -84,8 +93,8 @@ public class OrderItem {
     
     // Helper method to calculate subtotal
     public void calculateSubtotal() {
-        if (pricePerUnit != null && quantity > 0) {
-            this.subtotal = pricePerUnit.multiply(new BigDecimal(quantity));
+        if (quantity > 0) {
+            this.subtotalCents = Money.multiply(pricePerUnitCents, quantity);
         }
     }
 }
\ No newline at end of file
@@ -1,13 +1,14 @@
 package com.ecommerce.model;
 
-import java.math.BigDecimal;
+import com.ecommerce.util.Money;
+
 import java.sql.Timestamp;
 
 public class Product {
     private int productId;
     private String name;
     private String description;
-    private BigDecimal price;
+    private long priceCents;
     private int stockQuantity;
     private int categoryId;
     private String imagePath;
@@ -17,12 +18,12 @@ public class Product {
     // Constructors
     public Product() {}
     
-    public Product(int productId, String name, String description, BigDecimal price, 
+    public Product(int productId, String name, String description, long priceCents, 
                   int stockQuantity, int categoryId, String imagePath, Timestamp createdAt) {
         this.productId = productId;
         this.name = name;
         this.description = description;
-        this.price = price;
+        this.priceCents = priceCents;
         this.stockQuantity = stockQuantity;
         this.categoryId = categoryId;
         this.imagePath = imagePath;
@@ -38,6 +39,15 @@ public class Product {
         this.productId = productId;
     }
     
+    // Shorthand for the productId used by the DAOs, services and UI
+    public int getId() {
+        return productId;
+    }
+    
+    public void setId(int id) {
+        this.productId = id;
+    }
+    
     public String getName() {
         return name;
     }
@@ -54,12 +64,12 @@ public class Product {
         this.description = description;
     }
     
-    public BigDecimal getPrice() {
-        return price;
+    public long getPriceCents() {
+        return priceCents;
     }
     
-    public void setPrice(BigDecimal price) {
-        this.price = price;
+    public void setPriceCents(long priceCents) {
+        this.priceCents = priceCents;
     }
     
     public int getStockQuantity() {
@@ -104,6 +114,6 @@ public class Product {
     
     @Override
     public String toString() {
-        return name + " - $" + price;
+        return name + " - " + Money.format(priceCents);
     }
 }
\ No newline at end of file
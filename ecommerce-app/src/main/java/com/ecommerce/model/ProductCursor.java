@@ -0,0 +1,20 @@
+package com.ecommerce.model;
+
+// Position in a keyset-paginated product listing: the sort value and id of a boundary row
+public class ProductCursor {
+    private final Object sortValue;
+    private final int productId;
+    
+    public ProductCursor(Object sortValue, int productId) {
+        this.sortValue = sortValue;
+        this.productId = productId;
+    }
+    
+    public Object getSortValue() {
+        return sortValue;
+    }
+    
+    public int getProductId() {
+        return productId;
+    }
+}
\ No newline at end of file
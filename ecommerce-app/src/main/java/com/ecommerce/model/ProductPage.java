@@ -0,0 +1,47 @@
+package com.ecommerce.model;
+
+import java.util.List;
+
+// One page of a keyset-paginated product listing
+public class ProductPage {
+    private final List<Product> products;
+    private final ProductCursor firstCursor;
+    private final ProductCursor lastCursor;
+    private final boolean hasNext;
+    private final boolean hasPrevious;
+    
+    public ProductPage(List<Product> products, ProductCursor firstCursor, ProductCursor lastCursor,
+                       boolean hasNext, boolean hasPrevious) {
+        this.products = products;
+        this.firstCursor = firstCursor;
+        this.lastCursor = lastCursor;
+        this.hasNext = hasNext;
+        this.hasPrevious = hasPrevious;
+    }
+    
+    public List<Product> getProducts() {
+        return products;
+    }
+    
+    // Pass this with forward = false to load the previous page
+    public ProductCursor getFirstCursor() {
+        return firstCursor;
+    }
+    
+    // Pass this with forward = true to load the next page
+    public ProductCursor getLastCursor() {
+        return lastCursor;
+    }
+    
+    public boolean hasNext() {
+        return hasNext;
+    }
+    
+    public boolean hasPrevious() {
+        return hasPrevious;
+    }
+    
+    public boolean isEmpty() {
+        return products.isEmpty();
+    }
+}
\ No newline at end of file
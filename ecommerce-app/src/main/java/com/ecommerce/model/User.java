@@ -33,6 +33,15 @@ public class User {
         this.userId = userId;
     }
     
+    // Shorthand for the userId used by the DAOs, services and UI
+    public int getId() {
+        return userId;
+    }
+    
+    public void setId(int id) {
+        this.userId = id;
+    }
+    
     public String getEmail() {
         return email;
     }
@@ -0,0 +1,630 @@
+package com.ecommerce.server;
+
+import com.ecommerce.config.DatabaseConnection;
+import com.ecommerce.model.CartItem;
+import com.ecommerce.model.Category;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.OrderItem;
+import com.ecommerce.model.Product;
+import com.ecommerce.model.ProductCursor;
+import com.ecommerce.model.ProductPage;
+import com.ecommerce.model.User;
+import com.ecommerce.service.AuthService;
+import com.ecommerce.service.CartService;
+import com.ecommerce.service.InventoryReservationService;
+import com.ecommerce.service.OrderService;
+import com.ecommerce.service.ProductService;
+import com.ecommerce.util.Money;
+import com.ecommerce.util.ValidationUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless JSON API over the same services the desktop application uses, on the JDK's
+ * built-in HTTP server. Each request runs on its own virtual thread where the JDK has them,
+ * so a request blocked on the database or the password hasher costs almost nothing and one
+ * node can hold thousands of clients; the connection pool and hashing queue still bound the
+ * work that reaches those resources. Older JDKs fall back to a fixed pool of platform threads.
+ *
+ * Sessions live in this JVM's SessionRegistry and carts in its write-behind CartStore, so run
+ * a single node, or several behind a load balancer that keeps each session token on the node
+ * that issued it. The in-memory stock ledger assumes one writer of stock, which no node can
+ * promise, so it is always off in server mode and checkouts update the products table.
+ * Clients log in with POST /api/auth/login and pass the token back as
+ * "Authorization: Bearer &lt;token&gt;".
+ */
+public class ApiServer {
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final AuthService authService;
+    private final ProductService productService;
+    private final CartService cartService;
+    private final OrderService orderService;
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+
+    public ApiServer(int port, int backlog, int fallbackThreads) throws IOException {
+        if (InventoryReservationService.isEnabled()) {
+            System.err.println("inventory.reservations.enabled is ignored in server mode");
+        }
+        InventoryReservationService.disable();
+
+        this.authService = new AuthService();
+        this.productService = new ProductService();
+        this.cartService = new CartService();
+        this.orderService = new OrderService();
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newPlatformThreadExecutor(fallbackThreads);
+
+        this.server = HttpServer.create(new InetSocketAddress(port), backlog);
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+    }
+
+    /**
+     * Server on the configured port with the configured accept backlog.
+     */
+    public static ApiServer fromConfig() throws IOException {
+        DatabaseConnection config = DatabaseConnection.getInstance();
+        return new ApiServer(
+                config.getIntProperty("server.port", 8080),
+                config.getIntProperty("server.backlog", 1024),
+                config.getIntProperty("server.fallbackThreads", 200));
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor is only there from JDK 21, and this builds on 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor(int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "api-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting connections, give requests in progress up to the delay to finish, then stop.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(delaySeconds, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * Requests answered with a 5xx status.
+     */
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.increment();
+        int status;
+        Object body;
+        try {
+            Request request = new Request(exchange);
+            body = route(request);
+            status = request.status;
+        } catch (ApiException e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error handling " + exchange.getRequestMethod() + " "
+                    + exchange.getRequestURI().getPath() + ": " + e.getMessage());
+            status = 500;
+            body = error("Internal server error");
+        }
+        if (status >= 500) {
+            errorCount.increment();
+        }
+        send(exchange, status, body);
+    }
+
+    private Object route(Request request) {
+        String[] path = request.path;
+        String method = request.method;
+        // path[0] is always "api"
+        if (path.length < 2) {
+            throw new ApiException(404, "Not found");
+        }
+
+        switch (path[1]) {
+            case "auth":
+                if (path.length == 3 && method.equals("POST")) {
+                    switch (path[2]) {
+                        case "register": return register(request);
+                        case "login": return login(request);
+                        case "logout": return logout(request);
+                    }
+                }
+                break;
+            case "categories":
+                if (path.length == 2 && method.equals("GET")) {
+                    return categories();
+                }
+                break;
+            case "products":
+                if (method.equals("GET")) {
+                    if (path.length == 2) {
+                        return productPage(request);
+                    }
+                    if (path.length == 3 && path[2].equals("search")) {
+                        return searchProducts(request);
+                    }
+                    if (path.length == 3) {
+                        return product(parseId(path[2]));
+                    }
+                }
+                break;
+            case "cart":
+                return cart(request);
+            case "orders":
+                return orders(request);
+        }
+        boolean known = isKnownResource(path[1]);
+        throw new ApiException(known ? 405 : 404, known ? "Method not allowed" : "Not found");
+    }
+
+    private static boolean isKnownResource(String name) {
+        switch (name) {
+            case "auth": case "categories": case "products": case "cart": case "orders":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Auth
+
+    private Object register(Request request) {
+        Map<String, Object> json = request.json();
+        String email = requireString(json, "email");
+        String password = requireString(json, "password");
+        String fullName = requireString(json, "fullName");
+        if (!ValidationUtil.isValidEmail(email)) {
+            throw new ApiException(400, "Invalid email address");
+        }
+        if (!authService.register(email, password, fullName)) {
+            throw new ApiException(409, "Email is already registered or registration failed");
+        }
+        request.status = 201;
+        return ok();
+    }
+
+    private Object login(Request request) {
+        Map<String, Object> json = request.json();
+        String token = authService.loginSession(requireString(json, "email"), requireString(json, "password"));
+        if (token == null) {
+            throw new ApiException(401, "Invalid email or password");
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("token", token);
+        result.put("user", toJson(authService.getSessionUser(token)));
+        return result;
+    }
+
+    private Object logout(Request request) {
+        authService.logout(request.token());
+        return ok();
+    }
+
+    // Catalog
+
+    private Object categories() {
+        List<Object> result = new ArrayList<>();
+        for (Category category : productService.getAllCategories()) {
+            result.add(toJson(category));
+        }
+        return result;
+    }
+
+    /**
+     * One page of the catalog in id order. Pass the previous page's "next" value as "after"
+     * for the following page.
+     */
+    private Object productPage(Request request) {
+        int categoryId = request.intParam("category", 0);
+        int after = request.intParam("after", 0);
+        ProductCursor cursor = after > 0 ? new ProductCursor(null, after) : null;
+        ProductPage page = productService.getProductPage(categoryId, cursor, true);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("products", toJson(page.getProducts()));
+        result.put("next", page.hasNext() && page.getLastCursor() != null
+                ? page.getLastCursor().getProductId() : null);
+        return result;
+    }
+
+    private Object searchProducts(Request request) {
+        String query = request.params.get("q");
+        if (query == null || query.trim().isEmpty()) {
+            throw new ApiException(400, "Missing query parameter q");
+        }
+        return toJson(productService.searchProducts(query.trim()));
+    }
+
+    private Object product(int productId) {
+        Product product = productService.getProductById(productId);
+        if (product == null) {
+            throw new ApiException(404, "Product not found");
+        }
+        return toJson(product);
+    }
+
+    // Cart
+
+    private Object cart(Request request) {
+        String[] path = request.path;
+        String token = request.authenticatedToken(authService);
+
+        if (path.length == 2) {
+            if (request.method.equals("GET")) {
+                return cartJson(token);
+            }
+            if (request.method.equals("DELETE")) {
+                if (!cartService.clearCart(token)) {
+                    throw new ApiException(500, "Could not clear the cart");
+                }
+                return ok();
+            }
+        } else if (path[2].equals("items")) {
+            if (path.length == 3 && request.method.equals("POST")) {
+                Map<String, Object> json = request.json();
+                int productId = requireInt(json, "productId");
+                int quantity = json.containsKey("quantity") ? requireInt(json, "quantity") : 1;
+                if (quantity < 1) {
+                    throw new ApiException(400, "Quantity must be at least 1");
+                }
+                if (!cartService.addToCart(token, productId, quantity)) {
+                    throw new ApiException(409, "Product is unavailable or out of stock");
+                }
+                request.status = 201;
+                return cartJson(token);
+            }
+            if (path.length == 4) {
+                int cartItemId = parseId(path[3]);
+                if (request.method.equals("PUT")) {
+                    int quantity = requireInt(request.json(), "quantity");
+                    if (quantity < 1) {
+                        throw new ApiException(400, "Quantity must be at least 1");
+                    }
+                    if (!cartService.updateCartItemQuantity(token, cartItemId, quantity)) {
+                        throw new ApiException(404, "Cart item not found or not enough stock");
+                    }
+                    return cartJson(token);
+                }
+                if (request.method.equals("DELETE")) {
+                    if (!cartService.removeFromCart(token, cartItemId)) {
+                        throw new ApiException(404, "Cart item not found");
+                    }
+                    return cartJson(token);
+                }
+            }
+        }
+        throw new ApiException(405, "Method not allowed");
+    }
+
+    private Object cartJson(String token) {
+        List<CartItem> items = cartService.getUserCart(token);
+        long total = 0;
+        List<Object> itemsJson = new ArrayList<>(items.size());
+        for (CartItem item : items) {
+            itemsJson.add(toJson(item));
+            total = Money.add(total, item.getSubtotalCents());
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("items", itemsJson);
+        result.put("total", Money.toPlainString(total));
+        return result;
+    }
+
+    // Orders
+
+    private Object orders(Request request) {
+        String[] path = request.path;
+        String token = request.authenticatedToken(authService);
+
+        if (path.length == 2 && request.method.equals("POST")) {
+            String shippingAddress = requireString(request.json(), "shippingAddress");
+            int orderId = orderService.createOrder(token, shippingAddress);
+            if (orderId <= 0) {
+                throw new ApiException(409, "Order could not be placed; check the cart and stock");
+            }
+            request.status = 201;
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("orderId", orderId);
+            return result;
+        }
+        if (path.length == 2 && request.method.equals("GET")) {
+            List<Object> result = new ArrayList<>();
+            for (Order order : orderService.getUserOrders(token)) {
+                result.add(toJson(order, false));
+            }
+            return result;
+        }
+        if (path.length == 3 && request.method.equals("GET")) {
+            Order order = orderService.getOrderDetails(token, parseId(path[2]));
+            if (order == null) {
+                throw new ApiException(404, "Order not found");
+            }
+            return toJson(order, true);
+        }
+        throw new ApiException(405, "Method not allowed");
+    }
+
+    // JSON views of the models; money is sent as a decimal string so clients never see a rounded double
+
+    private static Map<String, Object> toJson(User user) {
+        if (user == null) {
+            return null;
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", user.getId());
+        json.put("email", user.getEmail());
+        json.put("fullName", user.getFullName());
+        json.put("role", user.getRole());
+        return json;
+    }
+
+    private static Map<String, Object> toJson(Category category) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", category.getId());
+        json.put("name", category.getName());
+        json.put("description", category.getDescription());
+        return json;
+    }
+
+    private static List<Object> toJson(List<Product> products) {
+        List<Object> json = new ArrayList<>(products.size());
+        for (Product product : products) {
+            json.add(toJson(product));
+        }
+        return json;
+    }
+
+    private static Map<String, Object> toJson(Product product) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", product.getId());
+        json.put("name", product.getName());
+        json.put("description", product.getDescription());
+        json.put("price", Money.toPlainString(product.getPriceCents()));
+        json.put("stock", product.getStockQuantity());
+        Category category = product.getCategory();
+        json.put("categoryId", category != null ? category.getId() : null);
+        json.put("categoryName", category != null ? category.getName() : null);
+        return json;
+    }
+
+    private static Map<String, Object> toJson(CartItem item) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", item.getId());
+        json.put("product", toJson(item.getProduct()));
+        json.put("quantity", item.getQuantity());
+        json.put("subtotal", Money.toPlainString(item.getSubtotalCents()));
+        return json;
+    }
+
+    private static Map<String, Object> toJson(Order order, boolean withItems) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", order.getId());
+        json.put("status", order.getStatus());
+        json.put("total", Money.toPlainString(order.getTotalAmountCents()));
+        json.put("shippingAddress", order.getShippingAddress());
+        json.put("orderDate", order.getOrderDate() != null ? order.getOrderDate().toString() : null);
+        if (withItems && order.getOrderItems() != null) {
+            List<Object> items = new ArrayList<>();
+            for (OrderItem item : order.getOrderItems()) {
+                Map<String, Object> itemJson = new LinkedHashMap<>();
+                itemJson.put("productId", item.getProduct() != null ? item.getProduct().getId() : null);
+                itemJson.put("productName", item.getProduct() != null ? item.getProduct().getName() : null);
+                itemJson.put("quantity", item.getQuantity());
+                itemJson.put("price", Money.toPlainString(item.getPricePerUnitCents()));
+                itemJson.put("subtotal", Money.toPlainString(item.getSubtotalCents()));
+                items.add(itemJson);
+            }
+            json.put("items", items);
+        }
+        return json;
+    }
+
+    private static Map<String, Object> ok() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("ok", true);
+        return json;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("error", message);
+        return json;
+    }
+
+    private static String requireString(Map<String, Object> json, String field) {
+        Object value = json.get(field);
+        if (!(value instanceof String) || ((String) value).trim().isEmpty()) {
+            throw new ApiException(400, "Missing or invalid field " + field);
+        }
+        return (String) value;
+    }
+
+    private static int requireInt(Map<String, Object> json, String field) {
+        Object value = json.get(field);
+        if (!(value instanceof Long) || (Long) value < Integer.MIN_VALUE || (Long) value > Integer.MAX_VALUE) {
+            throw new ApiException(400, "Missing or invalid field " + field);
+        }
+        return ((Long) value).intValue();
+    }
+
+    private static int parseId(String text) {
+        try {
+            int id = Integer.parseInt(text);
+            if (id > 0) {
+                return id;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the 404 below
+        }
+        throw new ApiException(404, "Not found");
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static class Request {
+        private final HttpExchange exchange;
+        private final String method;
+        private final String[] path;
+        private final Map<String, String> params;
+        private int status = 200;
+
+        Request(HttpExchange exchange) {
+            this.exchange = exchange;
+            this.method = exchange.getRequestMethod();
+            String rawPath = exchange.getRequestURI().getPath();
+            this.path = rawPath.replaceAll("^/+|/+$", "").split("/+");
+            this.params = parseQuery(exchange.getRequestURI().getRawQuery());
+        }
+
+        private static Map<String, String> parseQuery(String query) {
+            Map<String, String> params = new HashMap<>();
+            if (query == null || query.isEmpty()) {
+                return params;
+            }
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                String key = eq < 0 ? pair : pair.substring(0, eq);
+                String value = eq < 0 ? "" : pair.substring(eq + 1);
+                try {
+                    params.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+                } catch (IllegalArgumentException | IOException e) {
+                    throw new ApiException(400, "Malformed query string");
+                }
+            }
+            return params;
+        }
+
+        int intParam(String name, int defaultValue) {
+            String value = params.get(name);
+            if (value == null || value.isEmpty()) {
+                return defaultValue;
+            }
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new ApiException(400, "Invalid value for " + name);
+            }
+        }
+
+        String token() {
+            String header = exchange.getRequestHeaders().getFirst("Authorization");
+            if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+                return null;
+            }
+            return header.substring(7).trim();
+        }
+
+        /**
+         * The request's session token, after checking that it belongs to a live session.
+         */
+        String authenticatedToken(AuthService authService) {
+            String token = token();
+            if (authService.getSessionUser(token) == null) {
+                throw new ApiException(401, "Login required");
+            }
+            return token;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> json() {
+            byte[] bytes;
+            try (InputStream in = exchange.getRequestBody()) {
+                bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            } catch (IOException e) {
+                throw new ApiException(400, "Could not read request body");
+            }
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body too large");
+            }
+            Object value;
+            try {
+                value = Json.parse(new String(bytes, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, "Malformed JSON: " + e.getMessage());
+            }
+            if (!(value instanceof Map)) {
+                throw new ApiException(400, "Expected a JSON object");
+            }
+            return (Map<String, Object>) value;
+        }
+    }
+
+    private static class ApiException extends RuntimeException {
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,269 @@
+package com.ecommerce.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the API server, so it needs no library on the class path.
+ * Parsing yields Map, List, String, Long, Double, Boolean or null; writing accepts the
+ * same types plus any other Number and Iterable.
+ */
+public class Json {
+    // Deepest nesting of objects and arrays accepted, so hostile input cannot overflow the stack
+    private static final int MAX_DEPTH = 64;
+
+    private final String text;
+    private int pos;
+    private int depth;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not a single well-formed JSON value,
+     *         or nests objects and arrays more than MAX_DEPTH deep
+     */
+    public static Object parse(String text) {
+        Json parser = new Json(text);
+        parser.skipWhitespace();
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.pos != text.length()) {
+            throw parser.error("Unexpected trailing characters");
+        }
+        return value;
+    }
+
+    public static String write(Object value) {
+        StringBuilder sb = new StringBuilder(256);
+        append(sb, value);
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof String) {
+            appendString(sb, (String) value);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                appendString(sb, String.valueOf(entry.getKey()));
+                sb.append(':');
+                append(sb, entry.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof Iterable) {
+            sb.append('[');
+            boolean first = true;
+            for (Object element : (Iterable<?>) value) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                append(sb, element);
+            }
+            sb.append(']');
+        } else {
+            appendString(sb, value.toString());
+        }
+    }
+
+    private static void appendString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private Object readValue() {
+        if (pos >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        char c = text.charAt(pos);
+        switch (c) {
+            case '{':
+            case '[':
+                if (++depth > MAX_DEPTH) {
+                    throw error("Nested more than " + MAX_DEPTH + " levels deep");
+                }
+                Object nested = c == '{' ? readObject() : readArray();
+                depth--;
+                return nested;
+            case '"': return readString();
+            case 't': return readLiteral("true", Boolean.TRUE);
+            case 'f': return readLiteral("false", Boolean.FALSE);
+            case 'n': return readLiteral("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return readNumber();
+                }
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        pos++;
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return map;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("Expected a string key");
+            }
+            String key = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            map.put(key, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect('}');
+                return map;
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> list = new ArrayList<>();
+        pos++;
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return list;
+        }
+        while (true) {
+            skipWhitespace();
+            list.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect(']');
+                return list;
+            }
+        }
+    }
+
+    private String readString() {
+        pos++;
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (pos >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char escaped = text.charAt(pos++);
+            switch (escaped) {
+                case '"': case '\\': case '/': sb.append(escaped); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > text.length()) {
+                        throw error("Bad unicode escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Bad unicode escape");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    throw error("Bad escape '\\" + escaped + "'");
+            }
+        }
+    }
+
+    private Object readNumber() {
+        int start = pos;
+        boolean integral = true;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E') {
+                integral = false;
+            } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                break;
+            }
+            pos++;
+        }
+        String number = text.substring(start, pos);
+        try {
+            return integral ? (Object) Long.parseLong(number) : (Object) Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw error("Bad number " + number);
+        }
+    }
+
+    private Object readLiteral(String literal, Object value) {
+        if (!text.startsWith(literal, pos)) {
+            throw error("Unexpected token");
+        }
+        pos += literal.length();
+        return value;
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private char peek() {
+        return pos < text.length() ? text.charAt(pos) : '\0';
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos);
+    }
+}
\ No newline at end of file
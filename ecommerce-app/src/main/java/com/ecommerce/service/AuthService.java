@@ -4,54 +4,161 @@ import com.ecommerce.dao.UserDAO;
 import com.ecommerce.model.User;
 import com.ecommerce.util.PasswordUtil;
 
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
 public class AuthService {
     private UserDAO userDAO;
-    private static User currentUser;
+    private final SessionRegistry sessions;
+    // The desktop application's own session; it never expires, only logs out
+    private static String desktopSession;
+    // Checked against when the email is unknown, so that takes as long as a wrong password
+    private static volatile String dummyHash;
     
     public AuthService() {
         userDAO = new UserDAO();
+        sessions = SessionRegistry.getInstance();
     }
     
     public boolean register(String email, String password, String fullName) {
         // Check if user already exists
-        if (userDAO.findByEmail(email) != null) {
+        if (userDAO.emailExists(email)) {
             return false;
         }
         
         // Create new user with CUSTOMER role
         User newUser = new User();
         newUser.setEmail(email);
-        newUser.setPassword(PasswordUtil.hashPassword(password));
+        try {
+            newUser.setPassword(PasswordUtil.hashPassword(password));
+        } catch (RejectedExecutionException e) {
+            System.err.println("Error registering user: " + e.getMessage());
+            return false;
+        }
         newUser.setFullName(fullName);
         newUser.setRole("CUSTOMER");
         
         return userDAO.create(newUser);
     }
     
+    /**
+     * Log in the desktop application's user.
+     */
     public User login(String email, String password) {
+        User user = authenticate(email, password);
+        if (user == null) {
+            return null;
+        }
+        
+        synchronized (AuthService.class) {
+            sessions.invalidate(desktopSession);
+            desktopSession = sessions.create(user, false);
+        }
+        return user;
+    }
+    
+    /**
+     * Log in one of many concurrent users, e.g. a client of the server.
+     * @return Session token to pass to the services, or null if the credentials are wrong
+     */
+    public String loginSession(String email, String password) {
+        User user = authenticate(email, password);
+        return user == null ? null : sessions.create(user);
+    }
+    
+    /**
+     * The user of a session, or null if it is unknown or has expired.
+     */
+    public User getSessionUser(String sessionToken) {
+        return sessions.getUser(sessionToken);
+    }
+    
+    public void logout(String sessionToken) {
+        // Ending the user's last session writes their cart out now rather than on the next flush
+        sessions.invalidate(sessionToken);
+    }
+    
+    private User authenticate(String email, String password) {
         User user = userDAO.findByEmail(email);
         
-        if (user != null && PasswordUtil.checkPassword(password, user.getPassword())) {
-            currentUser = user;
-            return user;
+        try {
+            if (user == null) {
+                // Do the same work as for a known email, so the response time doesn't tell them apart
+                PasswordUtil.checkPassword(password, getDummyHash());
+                return null;
+            }
+            
+            if (!PasswordUtil.checkPassword(password, user.getPassword())) {
+                return null;
+            }
+            
+            // Replace a legacy or outdated hash now that we have the plain password;
+            // the credentials stay the same, so the user's sessions are kept
+            if (PasswordUtil.needsRehash(user.getPassword())) {
+                String previousHash = user.getPassword();
+                user.setPassword(PasswordUtil.hashPassword(password));
+                if (!userDAO.update(user)) {
+                    user.setPassword(previousHash);
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            System.err.println("Error logging in: " + e.getMessage());
+            return null;
         }
         
-        return null;
+        return user;
+    }
+    
+    /**
+     * Save changes to a user's account and end their sessions, which still hold the old
+     * details, e.g. the role they were granted at login.
+     */
+    public boolean updateUser(User user) {
+        if (!userDAO.update(user)) {
+            return false;
+        }
+        sessions.invalidateUser(user.getId());
+        return true;
+    }
+    
+    /**
+     * Delete a user's account and end every session they still have.
+     */
+    public boolean deleteUser(int userId) {
+        if (!userDAO.delete(userId)) {
+            return false;
+        }
+        sessions.invalidateUser(userId);
+        return true;
+    }
+    
+    // A hash of a random password with the current cost, made once on first use
+    private static String getDummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = PasswordUtil.hashPassword(UUID.randomUUID().toString());
+            dummyHash = hash;
+        }
+        return hash;
     }
     
     public void logout() {
-        currentUser = null;
+        synchronized (AuthService.class) {
+            logout(desktopSession);
+            desktopSession = null;
+        }
     }
     
-    public static User getCurrentUser() {
-        return currentUser;
+    public static synchronized User getCurrentUser() {
+        return SessionRegistry.getInstance().getUser(desktopSession);
     }
     
     public static boolean isLoggedIn() {
-        return currentUser != null;
+        return getCurrentUser() != null;
     }
     
     public static boolean isAdmin() {
-        return isLoggedIn() && currentUser.isAdmin();
+        User user = getCurrentUser();
+        return user != null && user.isAdmin();
     }
 }
\ No newline at end of file
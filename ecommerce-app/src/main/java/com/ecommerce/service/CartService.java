@@ -4,23 +4,34 @@ import com.ecommerce.dao.CartItemDAO;
 import com.ecommerce.dao.ProductDAO;
 import com.ecommerce.model.CartItem;
 import com.ecommerce.model.Product;
+import com.ecommerce.model.User;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CartService {
     private final CartItemDAO cartItemDAO;
     private final ProductDAO productDAO;
+    private final InventoryReservationService inventory;
+    private final CartStore cartStore;
+    private final ProductCache productCache;
+    private final SessionRegistry sessions;
 
     public CartService() {
         this.cartItemDAO = new CartItemDAO();
         this.productDAO = new ProductDAO();
+        this.cartStore = CartStore.getInstance();
+        this.productCache = ProductCache.getInstance();
+        this.sessions = SessionRegistry.getInstance();
+        this.inventory = InventoryReservationService.isEnabled() ? InventoryReservationService.getInstance() : null;
     }
 
     public List<CartItem> getUserCart(int userId) {
         try {
-            return cartItemDAO.getCartItemsByUser(userId);
+            return cartStore.getCart(userId);
         } catch (SQLException e) {
             System.err.println("Error retrieving cart items: " + e.getMessage());
             return new ArrayList<>();
@@ -30,7 +41,7 @@ public class CartService {
     public boolean addToCart(int userId, int productId, int quantity) {
         try {
             // Validate product and stock availability
-            Product product = productDAO.getProductById(productId);
+            Product product = productCache.get(productId);
             if (product == null) {
                 System.err.println("Product not found");
                 return false;
@@ -41,18 +52,67 @@ public class CartService {
                 return false;
             }
             
-            if (product.getStockQuantity() < quantity) {
+            if (availableStock(product) < quantity) {
                 System.err.println("Insufficient stock");
                 return false;
             }
             
-            // Create cart item
-            CartItem cartItem = new CartItem();
-            cartItem.setUserId(userId);
-            cartItem.setProduct(product);
-            cartItem.setQuantity(quantity);
+            return cartStore.add(userId, product, quantity);
+        } catch (SQLException e) {
+            System.err.println("Error adding to cart: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Add several products to the user's cart at once.
+     * Stock is checked with one batched lookup and all lines are written with one upsert.
+     * @param quantities Quantity to add, keyed by product id
+     */
+    public boolean addItemsToCart(int userId, Map<Integer, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return true;
+        }
+        
+        int[] ids = new int[quantities.size()];
+        int index = 0;
+        for (int productId : quantities.keySet()) {
+            ids[index++] = productId;
+        }
+        
+        try {
+            Map<Integer, Product> products = productDAO.getProductsByIds(ids);
+            List<CartItem> cartItems = new ArrayList<>();
+            for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                Product product = products.get(entry.getKey());
+                if (product == null) {
+                    System.err.println("Product not found");
+                    return false;
+                }
+                if (entry.getValue() <= 0) {
+                    System.err.println("Invalid quantity");
+                    return false;
+                }
+                if (availableStock(product) < entry.getValue()) {
+                    System.err.println("Insufficient stock");
+                    return false;
+                }
+                
+                CartItem cartItem = new CartItem();
+                cartItem.setUserId(userId);
+                cartItem.setProduct(product);
+                cartItem.setQuantity(entry.getValue());
+                cartItems.add(cartItem);
+            }
             
-            return cartItemDAO.addToCart(cartItem);
+            // Written directly, so save pending edits first and reload the cart afterwards
+            if (!cartStore.flush(userId)) {
+                System.err.println("Could not save cart changes");
+                return false;
+            }
+            boolean added = cartItemDAO.addToCartBatch(cartItems);
+            cartStore.discard(userId);
+            return added;
         } catch (SQLException e) {
             System.err.println("Error adding to cart: " + e.getMessage());
             return false;
@@ -64,9 +124,13 @@ public class CartService {
             // Validate quantity
             if (quantity <= 0) {
                 // If quantity is zero or negative, remove the item
-                return cartItemDAO.removeFromCart(cartItemId);
+                return removeFromCart(cartItemId);
             }
             
+            // Kept in memory and written with the next flush when the cart is loaded
+            if (cartStore.updateQuantity(cartItemId, quantity)) {
+                return true;
+            }
             return cartItemDAO.updateCartItemQuantity(cartItemId, quantity);
         } catch (SQLException e) {
             System.err.println("Error updating cart item: " + e.getMessage());
@@ -76,6 +140,9 @@ public class CartService {
 
     public boolean removeFromCart(int cartItemId) {
         try {
+            if (cartStore.remove(cartItemId)) {
+                return true;
+            }
             return cartItemDAO.removeFromCart(cartItemId);
         } catch (SQLException e) {
             System.err.println("Error removing from cart: " + e.getMessage());
@@ -85,49 +152,148 @@ public class CartService {
 
     public boolean clearCart(int userId) {
         try {
-            return cartItemDAO.clearCart(userId);
+            // Dropped once the rows are gone, so listeners reading the cart again find it empty
+            boolean cleared = cartItemDAO.clearCart(userId);
+            cartStore.discard(userId);
+            return cleared;
         } catch (SQLException e) {
             System.err.println("Error clearing cart: " + e.getMessage());
             return false;
         }
     }
 
-    public double calculateCartTotal(int userId) {
-        double total = 0.0;
-        List<CartItem> cartItems = getUserCart(userId);
-        
-        for (CartItem item : cartItems) {
-            total += item.getProduct().getPrice() * item.getQuantity();
+    /**
+     * Cart total in cents, summed in place over the in-memory cart.
+     */
+    public long calculateCartTotal(int userId) {
+        try {
+            return cartStore.getTotalCents(userId);
+        } catch (SQLException e) {
+            System.err.println("Error calculating cart total: " + e.getMessage());
+            return 0;
         }
-        
-        return total;
     }
 
     public int getCartItemCount(int userId) {
         try {
-            return cartItemDAO.getCartItemCount(userId);
+            return cartStore.getItemCount(userId);
         } catch (SQLException e) {
             System.err.println("Error getting cart count: " + e.getMessage());
             return 0;
         }
     }
 
+    /**
+     * Be told of changes to any user's cart as they are made, e.g. to update a cart view or
+     * item count without reading the cart again. See CartStore.Listener.
+     */
+    public void addCartListener(CartStore.Listener listener) {
+        cartStore.addListener(listener);
+    }
+
+    public void removeCartListener(CartStore.Listener listener) {
+        cartStore.removeListener(listener);
+    }
+
     public boolean validateCartItemsAvailability(int userId) {
-        List<CartItem> cartItems = getUserCart(userId);
+        return validateCartItemsAvailability(getUserCart(userId));
+    }
+
+    /**
+     * Check the given cart lines against current stock with a single batched product lookup.
+     * Quantities for the same product are added up before comparing.
+     */
+    public boolean validateCartItemsAvailability(List<CartItem> cartItems) {
+        if (cartItems.isEmpty()) {
+            return true;
+        }
         
+        Map<Integer, Integer> requested = new LinkedHashMap<>();
         for (CartItem item : cartItems) {
-            try {
-                // Get the latest product information
-                Product product = productDAO.getProductById(item.getProduct().getId());
-                if (product == null || product.getStockQuantity() < item.getQuantity()) {
+            requested.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        int[] ids = new int[requested.size()];
+        int index = 0;
+        for (int productId : requested.keySet()) {
+            ids[index++] = productId;
+        }
+        
+        try {
+            // Get the latest product information
+            Map<Integer, Product> products = productDAO.getProductsByIds(ids);
+            for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+                Product product = products.get(entry.getKey());
+                if (product == null || availableStock(product) < entry.getValue()) {
                     return false;
                 }
-            } catch (SQLException e) {
-                System.err.println("Error validating cart items: " + e.getMessage());
-                return false;
             }
+        } catch (SQLException e) {
+            System.err.println("Error validating cart items: " + e.getMessage());
+            return false;
         }
         
         return true;
     }
+
+    // Variants taking a session token, for serving many users at once.
+    // Each resolves the session to its user, then behaves like the user id version.
+
+    public List<CartItem> getUserCart(String sessionToken) {
+        User user = sessionUser(sessionToken);
+        return user == null ? new ArrayList<>() : getUserCart(user.getId());
+    }
+
+    public boolean addToCart(String sessionToken, int productId, int quantity) {
+        User user = sessionUser(sessionToken);
+        return user != null && addToCart(user.getId(), productId, quantity);
+    }
+
+    public boolean updateCartItemQuantity(String sessionToken, int cartItemId, int quantity) {
+        User user = sessionUser(sessionToken);
+        return user != null && ownsCartItem(user.getId(), cartItemId) && updateCartItemQuantity(cartItemId, quantity);
+    }
+
+    public boolean removeFromCart(String sessionToken, int cartItemId) {
+        User user = sessionUser(sessionToken);
+        return user != null && ownsCartItem(user.getId(), cartItemId) && removeFromCart(cartItemId);
+    }
+
+    public boolean clearCart(String sessionToken) {
+        User user = sessionUser(sessionToken);
+        return user != null && clearCart(user.getId());
+    }
+
+    public long calculateCartTotal(String sessionToken) {
+        User user = sessionUser(sessionToken);
+        return user == null ? 0 : calculateCartTotal(user.getId());
+    }
+
+    public int getCartItemCount(String sessionToken) {
+        User user = sessionUser(sessionToken);
+        return user == null ? 0 : getCartItemCount(user.getId());
+    }
+
+    private User sessionUser(String sessionToken) {
+        User user = sessions.getUser(sessionToken);
+        if (user == null) {
+            System.err.println("Session expired or invalid");
+        }
+        return user;
+    }
+
+    // Cart item ids come from the client, so check the line is in this user's cart
+    private boolean ownsCartItem(int userId, int cartItemId) {
+        for (CartItem item : getUserCart(userId)) {
+            if (item.getId() == cartItemId) {
+                return true;
+            }
+        }
+        System.err.println("Cart item not found");
+        return false;
+    }
+
+    private int availableStock(Product product) {
+        // The ledger also accounts for stock held by checkouts still in progress
+        return inventory != null ? inventory.getAvailable(product) : product.getStockQuantity();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,492 @@
+package com.ecommerce.service;
+
+import com.ecommerce.config.DatabaseConnection;
+import com.ecommerce.dao.CartItemDAO;
+import com.ecommerce.model.CartItem;
+import com.ecommerce.model.Product;
+import com.ecommerce.util.Money;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind cache of the carts of active users.
+ * Quantity changes and removals only update memory and are coalesced per cart line;
+ * a background flusher writes whatever changed to cart_items in one batched transaction
+ * every flush interval. Carts are also flushed before checkout, on logout and on exit,
+ * so the database copy is never more than one interval behind.
+ * New lines are still written straight away so they get their row id, after any of the
+ * cart's queued changes, so a line removed and added again is not deleted by a stale removal.
+ * Listeners hear about every change as it is made in memory, with the cart's new item count
+ * and total, so a view can update the one line that changed without reading the cart again.
+ */
+public class CartStore {
+    private static CartStore instance;
+
+    private final CartItemDAO cartItemDAO;
+    private final long idleEvictMillis;
+    private final ConcurrentHashMap<Integer, UserCart> carts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, UserCart> cartsByItemId = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final Object flushLock = new Object();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder editCount = new LongAdder();
+    private final LongAdder writtenCount = new LongAdder();
+
+    public CartStore(long flushIntervalMillis, long idleEvictMillis) {
+        if (flushIntervalMillis < 1 || idleEvictMillis < 1) {
+            throw new IllegalArgumentException("Invalid cart store settings: flush=" + flushIntervalMillis
+                    + "ms, idle=" + idleEvictMillis + "ms");
+        }
+        this.cartItemDAO = new CartItemDAO();
+        this.idleEvictMillis = idleEvictMillis;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cart-store-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAndEvictIdle, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized CartStore getInstance() {
+        if (instance == null) {
+            DatabaseConnection config = DatabaseConnection.getInstance();
+            instance = new CartStore(
+                    config.getLongProperty("cart.flushIntervalMillis", 2000),
+                    config.getLongProperty("cart.idleEvictMillis", 600000));
+        }
+        return instance;
+    }
+
+    /**
+     * The user's cart, loaded from the database on first use.
+     * The returned items are copies, so callers may keep or change them freely.
+     */
+    public List<CartItem> getCart(int userId) throws SQLException {
+        UserCart cart = load(userId);
+        synchronized (cart) {
+            cart.touch();
+            List<CartItem> copy = new ArrayList<>(cart.items.size());
+            for (CartItem item : cart.items.values()) {
+                copy.add(copyOf(item));
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * Total number of units in the user's cart.
+     */
+    public int getItemCount(int userId) throws SQLException {
+        UserCart cart = load(userId);
+        synchronized (cart) {
+            int count = 0;
+            for (CartItem item : cart.items.values()) {
+                count += item.getQuantity();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Cart total in cents, computed in place without copying the cart.
+     */
+    public long getTotalCents(int userId) throws SQLException {
+        UserCart cart = load(userId);
+        synchronized (cart) {
+            long total = 0;
+            for (CartItem item : cart.items.values()) {
+                total = Money.add(total, item.getSubtotalCents());
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Add to the quantity of a line the user already has, in memory only, or insert a new line.
+     */
+    public boolean add(int userId, Product product, int quantity) throws SQLException {
+        UserCart cart = load(userId);
+        Change change = null;
+        synchronized (cart) {
+            CartItem existing = cart.items.get(product.getId());
+            if (existing != null) {
+                change = setQuantity(cart, existing, existing.getQuantity() + quantity);
+            }
+        }
+        if (change != null) {
+            fireLineChanged(change);
+            return true;
+        }
+
+        // A removal of this product may still be queued. The upsert would add onto that row
+        // and get its id back, and the queued delete would then drop the line just added,
+        // so write it out first (flush also waits for one already in progress)
+        if (!flush(userId)) {
+            return false;
+        }
+
+        CartItem cartItem = new CartItem();
+        cartItem.setUserId(userId);
+        cartItem.setProduct(product);
+        cartItem.setQuantity(quantity);
+        if (!cartItemDAO.addToCart(cartItem)) {
+            return false;
+        }
+
+        synchronized (cart) {
+            CartItem existing = cart.items.get(product.getId());
+            if (existing != null) {
+                // Added concurrently; the upsert already summed both in the database
+                existing.setQuantity(existing.getQuantity() + quantity);
+                cartItem = existing;
+            } else {
+                cart.items.put(product.getId(), cartItem);
+                cartsByItemId.put(cartItem.getId(), cart);
+            }
+            cart.touch();
+            change = new Change(cart, cartItem);
+        }
+        fireLineChanged(change);
+        return true;
+    }
+
+    /**
+     * Change a line's quantity in memory; a quantity of 0 or less removes it.
+     * @return false if the line is not in a loaded cart, in which case the caller should write it directly
+     */
+    public boolean updateQuantity(int cartItemId, int quantity) {
+        UserCart cart = cartsByItemId.get(cartItemId);
+        if (cart == null) {
+            return false;
+        }
+        Change change = null;
+        synchronized (cart) {
+            for (CartItem item : cart.items.values()) {
+                if (item.getId() == cartItemId) {
+                    change = setQuantity(cart, item, quantity);
+                    break;
+                }
+            }
+        }
+        if (change == null) {
+            return false;
+        }
+        fireLineChanged(change);
+        return true;
+    }
+
+    public boolean remove(int cartItemId) {
+        return updateQuantity(cartItemId, 0);
+    }
+
+    // Called holding the cart's lock; the change is reported once it is released
+    private Change setQuantity(UserCart cart, CartItem item, int quantity) {
+        if (quantity <= 0) {
+            cart.items.remove(item.getProduct().getId());
+            cartsByItemId.remove(item.getId());
+            cart.pending.put(item.getId(), 0);
+        } else {
+            item.setQuantity(quantity);
+            cart.pending.put(item.getId(), quantity);
+        }
+        cart.touch();
+        editCount.increment();
+        return new Change(cart, item, Math.max(0, quantity));
+    }
+
+    /**
+     * Write every cart's pending changes now.
+     * @return false if the write failed; the changes are kept for the next flush
+     */
+    public boolean flush() {
+        return flush(carts.values());
+    }
+
+    /**
+     * Write one user's pending changes now, e.g. before checkout reads the cart from the database.
+     * @return false if the write failed; the changes are kept for the next flush
+     */
+    public boolean flush(int userId) {
+        UserCart cart = carts.get(userId);
+        return cart == null || flush(Collections.singletonList(cart));
+    }
+
+    /**
+     * Flush the user's cart and drop it from memory, e.g. on logout.
+     * If the flush fails the cart stays in memory, so the background flusher can retry it.
+     */
+    public void evict(int userId) {
+        if (flush(userId)) {
+            drop(userId);
+        }
+    }
+
+    /**
+     * Drop the user's cart from memory without writing it, for when its rows have just been
+     * replaced or deleted in the database, as after checkout or clearing the cart.
+     * Listeners are told to read the cart again.
+     */
+    public void discard(int userId) {
+        drop(userId);
+        for (Listener listener : listeners) {
+            listener.cartReplaced(userId);
+        }
+    }
+
+    // Evicting leaves the database copy as it was, so listeners are not told
+    private void drop(int userId) {
+        UserCart cart = carts.remove(userId);
+        if (cart != null) {
+            synchronized (cart) {
+                for (CartItem item : cart.items.values()) {
+                    cartsByItemId.remove(item.getId());
+                }
+                cart.pending.clear();
+            }
+        }
+    }
+
+    private boolean flush(Collection<UserCart> toFlush) {
+        synchronized (flushLock) {
+            Map<UserCart, Map<Integer, Integer>> taken = new HashMap<>();
+            int total = 0;
+            for (UserCart cart : toFlush) {
+                synchronized (cart) {
+                    if (!cart.pending.isEmpty()) {
+                        taken.put(cart, new HashMap<>(cart.pending));
+                        total += cart.pending.size();
+                        cart.pending.clear();
+                    }
+                }
+            }
+            if (taken.isEmpty()) {
+                return true;
+            }
+
+            int[] cartItemIds = new int[total];
+            int[] quantities = new int[total];
+            int index = 0;
+            for (Map<Integer, Integer> changes : taken.values()) {
+                for (Map.Entry<Integer, Integer> change : changes.entrySet()) {
+                    cartItemIds[index] = change.getKey();
+                    quantities[index] = change.getValue();
+                    index++;
+                }
+            }
+
+            try {
+                cartItemDAO.applyQuantityChanges(cartItemIds, quantities);
+                writtenCount.add(total);
+                return true;
+            } catch (SQLException e) {
+                System.err.println("Error saving cart changes: " + e.getMessage());
+                // Keep them for the next flush, unless a newer change has been made since
+                for (Map.Entry<UserCart, Map<Integer, Integer>> entry : taken.entrySet()) {
+                    synchronized (entry.getKey()) {
+                        for (Map.Entry<Integer, Integer> change : entry.getValue().entrySet()) {
+                            entry.getKey().pending.putIfAbsent(change.getKey(), change.getValue());
+                        }
+                    }
+                }
+                return false;
+            }
+        }
+    }
+
+    private void flushAndEvictIdle() {
+        flush();
+
+        long cutoff = System.currentTimeMillis() - idleEvictMillis;
+        for (Map.Entry<Integer, UserCart> entry : carts.entrySet()) {
+            UserCart cart = entry.getValue();
+            synchronized (cart) {
+                if (cart.lastAccess < cutoff && cart.pending.isEmpty()) {
+                    drop(entry.getKey());
+                }
+            }
+        }
+    }
+
+    private UserCart load(int userId) throws SQLException {
+        UserCart cart = carts.get(userId);
+        if (cart != null) {
+            return cart;
+        }
+
+        UserCart loaded = new UserCart(userId);
+        for (CartItem item : cartItemDAO.getCartItemsByUser(userId)) {
+            loaded.items.put(item.getProduct().getId(), item);
+        }
+        cart = carts.putIfAbsent(userId, loaded);
+        if (cart != null) {
+            return cart;
+        }
+        for (CartItem item : loaded.items.values()) {
+            cartsByItemId.put(item.getId(), loaded);
+        }
+        return loaded;
+    }
+
+    private static CartItem copyOf(CartItem item) {
+        CartItem copy = new CartItem();
+        copy.setId(item.getId());
+        copy.setUserId(item.getUserId());
+        copy.setProduct(item.getProduct());
+        copy.setQuantity(item.getQuantity());
+        return copy;
+    }
+
+    /**
+     * Be told of every cart change, for any user; the listener runs on the thread that made
+     * the change, so a UI must hand it to the Event Dispatch Thread itself.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireLineChanged(Change change) {
+        for (Listener listener : listeners) {
+            listener.lineChanged(change);
+        }
+    }
+
+    /**
+     * Number of cart edits made in memory so far.
+     */
+    public long getEditCount() {
+        return editCount.sum();
+    }
+
+    /**
+     * Number of cart rows actually written by flushes; edits to the same line in one interval are written once.
+     */
+    public long getWrittenCount() {
+        return writtenCount.sum();
+    }
+
+    /**
+     * Stop the flusher and write whatever is still pending.
+     */
+    public void close() {
+        flusher.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Close the shared store if it was ever created. Safe to call on application exit.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    public interface Listener {
+        /**
+         * A line was added, had its quantity changed, or was removed.
+         */
+        void lineChanged(Change change);
+
+        /**
+         * The user's cart was changed in the database as a whole, e.g. cleared, checked out
+         * or added to in a batch; read it again rather than patching it.
+         */
+        void cartReplaced(int userId);
+    }
+
+    /**
+     * One changed cart line and the state of its cart right after the change.
+     */
+    public static class Change {
+        private final int userId;
+        private final CartItem item;
+        private final int itemCount;
+        private final long totalCents;
+
+        // Called holding the cart's lock
+        private Change(UserCart cart, CartItem item) {
+            this(cart, item, item.getQuantity());
+        }
+
+        private Change(UserCart cart, CartItem item, int quantity) {
+            this.userId = cart.userId;
+            this.item = copyOf(item);
+            this.item.setQuantity(quantity);
+            int count = 0;
+            long total = 0;
+            for (CartItem line : cart.items.values()) {
+                count += line.getQuantity();
+                total = Money.add(total, line.getSubtotalCents());
+            }
+            this.itemCount = count;
+            this.totalCents = total;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        /**
+         * A copy of the changed line; a quantity of 0 means it was removed.
+         */
+        public CartItem getItem() {
+            return item;
+        }
+
+        public boolean isRemoved() {
+            return item.getQuantity() == 0;
+        }
+
+        /**
+         * Total number of units in the cart after the change.
+         */
+        public int getItemCount() {
+            return itemCount;
+        }
+
+        /**
+         * Cart total in cents after the change.
+         */
+        public long getTotalCents() {
+            return totalCents;
+        }
+    }
+
+    private static class UserCart {
+        private final int userId;
+        // Lines by product id, in the order they were added
+        private final Map<Integer, CartItem> items = new LinkedHashMap<>();
+        // Latest quantity per cart item id not yet written; 0 means delete
+        private final Map<Integer, Integer> pending = new HashMap<>();
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        UserCart(int userId) {
+            this.userId = userId;
+        }
+
+        void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+    }
+}
\ No newline at end of file
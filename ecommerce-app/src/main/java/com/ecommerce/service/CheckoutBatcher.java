@@ -0,0 +1,540 @@
+package com.ecommerce.service;
+
+import com.ecommerce.config.DatabaseConnection;
+import com.ecommerce.dao.CartItemDAO;
+import com.ecommerce.dao.OrderDAO;
+import com.ecommerce.dao.OrderItemDAO;
+import com.ecommerce.dao.ProductDAO;
+import com.ecommerce.model.CartItem;
+import com.ecommerce.model.Order;
+import com.ecommerce.model.OrderItem;
+import com.ecommerce.model.User;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Group commit for checkouts. Concurrent checkouts are queued for up to maxWaitMillis,
+ * or until maxBatchSize of them are waiting, and are then placed together in one
+ * transaction: one locked cart read, one stock decrement batch, one order insert batch,
+ * one order item batch and one cart delete.
+ * A checkout that runs short of stock is dropped by rolling back to a savepoint and
+ * replaying the rest of the batch, so it fails on its own without affecting the others.
+ * When InventoryReservationService is enabled, stock is held in its ledger instead.
+ * Larger batches and longer waits trade checkout latency for database throughput.
+ */
+public class CheckoutBatcher {
+    private static CheckoutBatcher instance;
+
+    private final DatabaseConnection dbConnection;
+    private final OrderDAO orderDAO;
+    private final OrderItemDAO orderItemDAO;
+    private final ProductDAO productDAO;
+    private final CartItemDAO cartItemDAO;
+    private final InventoryReservationService inventory;
+
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long timeoutMillis;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService workers;
+    private final Thread dispatcher;
+    // Held while checking closed and queueing, so close() cannot slip in between
+    private final Object submitLock = new Object();
+    private volatile boolean closed;
+
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder checkoutCount = new LongAdder();
+
+    /**
+     * @param maxBatchSize most checkouts placed in one transaction
+     * @param maxWaitMillis longest the first checkout of a batch waits for others to join
+     * @param workerCount how many batches may be placed concurrently
+     * @param timeoutMillis longest checkout() waits for its batch before giving up
+     */
+    public CheckoutBatcher(int maxBatchSize, long maxWaitMillis, int workerCount, long timeoutMillis) {
+        if (maxBatchSize < 1 || maxWaitMillis < 0 || workerCount < 1 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("Invalid group commit settings: batch=" + maxBatchSize
+                    + ", wait=" + maxWaitMillis + "ms, workers=" + workerCount
+                    + ", timeout=" + timeoutMillis + "ms");
+        }
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.orderDAO = new OrderDAO();
+        this.orderItemDAO = new OrderItemDAO();
+        this.productDAO = new ProductDAO();
+        this.cartItemDAO = new CartItemDAO();
+        this.inventory = InventoryReservationService.isEnabled() ? InventoryReservationService.getInstance() : null;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.timeoutMillis = timeoutMillis;
+
+        AtomicInteger workerNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "checkout-batch-" + workerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatch, "checkout-batcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    public static synchronized CheckoutBatcher getInstance() {
+        if (instance == null) {
+            DatabaseConnection config = DatabaseConnection.getInstance();
+            instance = new CheckoutBatcher(
+                    config.getIntProperty("checkout.groupCommit.maxBatchSize", 32),
+                    config.getLongProperty("checkout.groupCommit.maxWaitMillis", 5),
+                    config.getIntProperty("checkout.groupCommit.workers", 2),
+                    config.getLongProperty("checkout.groupCommit.timeoutMillis", 30000));
+        }
+        return instance;
+    }
+
+    /**
+     * Whether OrderService should route checkouts through the shared batcher.
+     */
+    public static boolean isEnabled() {
+        return DatabaseConnection.getInstance().getBooleanProperty("checkout.groupCommit.enabled", false);
+    }
+
+    /**
+     * Queue a checkout of the user's whole cart.
+     * @return Future completed with the new order id, or -1 if the order could not be placed
+     */
+    public CompletableFuture<Integer> submit(User user, String shippingAddress) {
+        Request request = new Request(user, shippingAddress);
+        if (closed) {
+            System.err.println("Checkout batcher is closed");
+            request.result.complete(-1);
+            return request.result;
+        }
+        // The batch reads carts from the database, so save edits still held in memory
+        if (!CartStore.getInstance().flush(user.getId())) {
+            System.err.println("Could not save cart changes before checkout");
+            request.result.complete(-1);
+            return request.result;
+        }
+        synchronized (submitLock) {
+            // Checked again, as close() may have run during the flush
+            if (closed) {
+                System.err.println("Checkout batcher is closed");
+                request.result.complete(-1);
+                return request.result;
+            }
+            queue.add(request);
+        }
+        return request.result;
+    }
+
+    /**
+     * Queue a checkout and wait up to timeoutMillis for its batch to be placed.
+     * A checkout that times out is abandoned: a batch that has not picked it up yet skips it,
+     * so retrying cannot place the same cart twice.
+     * @return The new order id, or -1 if the order could not be placed in time
+     */
+    public int checkout(User user, String shippingAddress) {
+        CompletableFuture<Integer> result = submit(user, shippingAddress);
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (!result.complete(-1)) {
+                // Placed just as we gave up
+                return result.join();
+            }
+            System.err.println("Timed out waiting for checkout after " + timeoutMillis + " ms");
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted while waiting for checkout");
+            return -1;
+        } catch (ExecutionException e) {
+            System.err.println("Error creating order: " + e.getCause());
+            return -1;
+        }
+    }
+
+    private void dispatch() {
+        // Second checkouts for a user already in the forming batch wait for the next one,
+        // so the same cart is never read twice in one transaction
+        Deque<Request> deferred = new ArrayDeque<>();
+        while (!closed || !queue.isEmpty() || !deferred.isEmpty()) {
+            List<Request> batch = new ArrayList<>();
+            Set<Integer> users = new HashSet<>();
+            try {
+                Request first = deferred.isEmpty() ? queue.take() : deferred.pollFirst();
+                batch.add(first);
+                users.add(first.user.getId());
+
+                Iterator<Request> it = deferred.iterator();
+                while (it.hasNext() && batch.size() < maxBatchSize) {
+                    Request next = it.next();
+                    if (users.add(next.user.getId())) {
+                        it.remove();
+                        batch.add(next);
+                    }
+                }
+
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Request next = remaining > 0 && !closed
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (users.add(next.user.getId())) {
+                        batch.add(next);
+                    } else {
+                        deferred.addLast(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // close() wakes us up; anything already collected is still placed
+            }
+
+            if (!batch.isEmpty()) {
+                workers.execute(() -> process(batch));
+            }
+        }
+        workers.shutdown();
+
+        // Anything that slipped in after the final drain
+        Request late;
+        while ((late = queue.poll()) != null) {
+            System.err.println("Checkout batcher is closed");
+            late.result.complete(-1);
+        }
+    }
+
+    /**
+     * Place a batch, and if the transaction as a whole fails, retry each checkout
+     * on its own so one bad request cannot fail the rest.
+     * Checkouts whose caller already gave up are skipped.
+     */
+    private void process(List<Request> requests) {
+        List<Request> batch = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            if (!request.result.isDone()) {
+                batch.add(request);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        int[] orderIds;
+        try {
+            orderIds = placeBatch(batch);
+        } catch (SQLException | RuntimeException e) {
+            if (batch.size() > 1) {
+                System.err.println("Error placing checkout batch, retrying individually: " + e.getMessage());
+                for (Request request : batch) {
+                    process(Collections.singletonList(request));
+                }
+            } else {
+                System.err.println("Error creating order: " + e.getMessage());
+                batch.get(0).result.complete(-1);
+            }
+            return;
+        }
+
+        batchCount.increment();
+        checkoutCount.add(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (orderIds[i] != -1) {
+                CartStore.getInstance().discard(batch.get(i).user.getId());
+            }
+            batch.get(i).result.complete(orderIds[i]);
+        }
+    }
+
+    /**
+     * Only throws if nothing was committed, so process() can safely retry the checkouts.
+     * @return Order ids in batch order, with -1 for checkouts that were rejected
+     */
+    private int[] placeBatch(List<Request> batch) throws SQLException {
+        int[] orderIds = new int[batch.size()];
+        Arrays.fill(orderIds, -1);
+        long[] reservations = new long[batch.size()];
+        Arrays.fill(reservations, -1);
+        boolean committed = false;
+
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int[] userIds = new int[batch.size()];
+                for (int i = 0; i < batch.size(); i++) {
+                    userIds[i] = batch.get(i).user.getId();
+                }
+                Map<Integer, List<CartItem>> carts = cartItemDAO.getCartItemsByUsers(conn, userIds);
+
+                // Indexes into the batch of the checkouts still going ahead, in arrival order
+                List<Integer> live = new ArrayList<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    if (carts.containsKey(userIds[i])) {
+                        live.add(i);
+                    } else {
+                        System.err.println("Cart is empty");
+                    }
+                }
+
+                if (!live.isEmpty() && inventory != null) {
+                    reserveInMemory(batch, carts, live, reservations);
+                } else if (!live.isEmpty()) {
+                    reserveStock(conn, batch, carts, live);
+                }
+
+                if (live.isEmpty()) {
+                    conn.commit();
+                    return orderIds;
+                }
+
+                List<Order> orders = new ArrayList<>();
+                int[] liveUserIds = new int[live.size()];
+                for (int k = 0; k < live.size(); k++) {
+                    Request request = batch.get(live.get(k));
+                    liveUserIds[k] = request.user.getId();
+                    orders.add(OrderService.buildOrder(request.user, request.shippingAddress, carts.get(liveUserIds[k])));
+                }
+                if (!orderDAO.createOrders(conn, orders)) {
+                    throw new SQLException("Could not insert the orders of a checkout batch");
+                }
+
+                List<OrderItem> orderItems = new ArrayList<>();
+                for (int k = 0; k < live.size(); k++) {
+                    orderItems.addAll(OrderService.buildOrderItems(orders.get(k).getId(), carts.get(liveUserIds[k])));
+                }
+                if (!orderItemDAO.addBatchOrderItems(conn, orderItems)) {
+                    throw new SQLException("Could not insert the order items of a checkout batch");
+                }
+
+                cartItemDAO.clearCarts(conn, liveUserIds);
+                conn.commit();
+                committed = true;
+
+                for (int k = 0; k < live.size(); k++) {
+                    orderIds[live.get(k)] = orders.get(k).getId();
+                }
+                afterCommit(carts, liveUserIds, live, reservations);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                for (long reservation : reservations) {
+                    if (reservation != -1) {
+                        inventory.release(reservation);
+                    }
+                }
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (!committed) {
+                throw e;
+            }
+            // The orders are placed; only handing the connection back failed
+            System.err.println("Error releasing connection after checkout batch: " + e.getMessage());
+        }
+        return orderIds;
+    }
+
+    /**
+     * Bring the product cache and the stock ledger in line with a committed batch.
+     * The orders are already placed, so errors are logged rather than thrown, which
+     * would make process() place them again.
+     */
+    private void afterCommit(Map<Integer, List<CartItem>> carts, int[] liveUserIds, List<Integer> live,
+                             long[] reservations) {
+        if (inventory == null) {
+            // Stock was taken from the products table, so cached copies are out of date
+            try {
+                ProductCache productCache = ProductCache.getInstance();
+                for (int userId : liveUserIds) {
+                    for (CartItem item : carts.get(userId)) {
+                        productCache.invalidate(item.getProduct().getId());
+                    }
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Error invalidating cached products after checkout batch: " + e.getMessage());
+            }
+            return;
+        }
+
+        for (int index : live) {
+            long reservation = reservations[index];
+            if (reservation == -1) {
+                continue;
+            }
+            // Cleared first so the rollback path never releases stock that was sold
+            reservations[index] = -1;
+            try {
+                inventory.commit(reservation);
+            } catch (RuntimeException e) {
+                System.err.println("Error committing stock reservation after checkout batch: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Decrement stock for every live checkout in one batch. Lines are sorted by product id,
+     * and by arrival within a product, so earlier checkouts get scarce stock first.
+     * When lines fail, the earliest checkout with a failed line is dropped and the rest is
+     * replayed from a savepoint. Every checkout before it succeeded in full, so its shortage
+     * is real rather than caused by a checkout that is about to be dropped anyway.
+     */
+    private void reserveStock(Connection conn, List<Request> batch, Map<Integer, List<CartItem>> carts,
+                              List<Integer> live) throws SQLException {
+        Savepoint beforeStock = conn.setSavepoint();
+        while (!live.isEmpty()) {
+            List<Line> lines = new ArrayList<>();
+            for (int index : live) {
+                for (CartItem item : carts.get(batch.get(index).user.getId())) {
+                    lines.add(new Line(index, item));
+                }
+            }
+            lines.sort(Comparator.comparingInt((Line line) -> line.item.getProduct().getId())
+                    .thenComparingInt(line -> line.request));
+
+            int[] productIds = new int[lines.size()];
+            int[] quantities = new int[lines.size()];
+            for (int i = 0; i < lines.size(); i++) {
+                productIds[i] = lines.get(i).item.getProduct().getId();
+                quantities[i] = lines.get(i).item.getQuantity();
+            }
+
+            int[] failedLines = productDAO.decrementStock(conn, productIds, quantities);
+            if (failedLines.length == 0) {
+                return;
+            }
+
+            Line earliest = null;
+            for (int line : failedLines) {
+                if (earliest == null || lines.get(line).request < earliest.request) {
+                    earliest = lines.get(line);
+                }
+            }
+            System.err.println("Insufficient stock for product " + earliest.item.getProduct().getName());
+            live.remove(Integer.valueOf(earliest.request));
+            conn.rollback(beforeStock);
+        }
+    }
+
+    /**
+     * Hold each live checkout's stock in the in-memory ledger, in arrival order.
+     * A checkout that can't be covered is dropped; nothing touches the products table.
+     */
+    private void reserveInMemory(List<Request> batch, Map<Integer, List<CartItem>> carts, List<Integer> live,
+                                 long[] reservations) throws SQLException {
+        Iterator<Integer> it = live.iterator();
+        while (it.hasNext()) {
+            int index = it.next();
+            List<CartItem> cart = carts.get(batch.get(index).user.getId());
+            int[] productIds = new int[cart.size()];
+            int[] quantities = new int[cart.size()];
+            for (int i = 0; i < cart.size(); i++) {
+                productIds[i] = cart.get(i).getProduct().getId();
+                quantities[i] = cart.get(i).getQuantity();
+            }
+
+            reservations[index] = inventory.reserve(productIds, quantities);
+            if (reservations[index] == -1) {
+                System.err.println("Insufficient stock");
+                it.remove();
+            }
+        }
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getCheckoutCount() {
+        return checkoutCount.sum();
+    }
+
+    /**
+     * Average number of checkouts placed per transaction so far.
+     */
+    public double getAverageBatchSize() {
+        long batches = batchCount.sum();
+        return batches == 0 ? 0.0 : (double) checkoutCount.sum() / batches;
+    }
+
+    /**
+     * Stop accepting checkouts. Checkouts already queued are still placed, and this
+     * waits a few seconds for them to finish; any still queued after that are failed.
+     */
+    public void close() {
+        synchronized (submitLock) {
+            closed = true;
+        }
+        dispatcher.interrupt();
+        try {
+            dispatcher.join(5000);
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Taking a request off the queue claims it, so none is both failed here and placed
+        Request late;
+        while ((late = queue.poll()) != null) {
+            System.err.println("Checkout batcher is closed");
+            late.result.complete(-1);
+        }
+    }
+
+    /**
+     * Close the shared batcher if it was ever started. Safe to call on application exit.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    private static class Request {
+        private final User user;
+        private final String shippingAddress;
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+        Request(User user, String shippingAddress) {
+            this.user = user;
+            this.shippingAddress = shippingAddress;
+        }
+    }
+
+    private static class Line {
+        private final int request;
+        private final CartItem item;
+
+        Line(int request, CartItem item) {
+            this.request = request;
+            this.item = item;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,473 @@
+package com.ecommerce.service;
+
+import com.ecommerce.config.DatabaseConnection;
+import com.ecommerce.dao.ProductDAO;
+import com.ecommerce.model.Product;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory stock ledger. Each product has its own lock-free counter, seeded from
+ * products.stock_quantity the first time it is needed, so availability checks and
+ * checkouts don't contend on the products row.
+ * A reservation holds stock until it is committed, released or its TTL runs out.
+ * Committed quantities are written back to the products table in batches by a
+ * background flusher, so a hot product sees one UPDATE per flush instead of one
+ * per checkout. While enabled, this process is assumed to be the only writer of stock.
+ */
+public class InventoryReservationService {
+    private static final int OPEN = 0;
+    private static final int EXPIRED = 1;
+    private static final int SETTLED = 2;
+
+    private static InventoryReservationService instance;
+    private static volatile boolean disabled;
+
+    private final ProductDAO productDAO;
+    private final long defaultTtlMillis;
+    private final ConcurrentHashMap<Integer, Stock> stock = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Reservation> reservations = new ConcurrentHashMap<>();
+    private final AtomicLong nextReservationId = new AtomicLong();
+    private final ScheduledExecutorService scheduler;
+    private final Object flushLock = new Object();
+
+    private final LongAdder reservedCount = new LongAdder();
+    private final LongAdder committedCount = new LongAdder();
+    private final LongAdder releasedCount = new LongAdder();
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+
+    public InventoryReservationService(long defaultTtlMillis, long flushIntervalMillis, long sweepIntervalMillis) {
+        if (defaultTtlMillis < 1 || flushIntervalMillis < 1 || sweepIntervalMillis < 1) {
+            throw new IllegalArgumentException("Invalid inventory settings: ttl=" + defaultTtlMillis
+                    + "ms, flush=" + flushIntervalMillis + "ms, sweep=" + sweepIntervalMillis + "ms");
+        }
+        this.productDAO = new ProductDAO();
+        this.defaultTtlMillis = defaultTtlMillis;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "inventory-writeback");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::sweep, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized InventoryReservationService getInstance() {
+        if (instance == null) {
+            DatabaseConnection config = DatabaseConnection.getInstance();
+            instance = new InventoryReservationService(
+                    config.getLongProperty("inventory.reservationTtlMillis", 30000),
+                    config.getLongProperty("inventory.flushIntervalMillis", 200),
+                    config.getLongProperty("inventory.sweepIntervalMillis", 1000));
+        }
+        return instance;
+    }
+
+    /**
+     * Whether checkouts should take stock from this ledger instead of updating the products table directly.
+     */
+    public static boolean isEnabled() {
+        return !disabled && DatabaseConnection.getInstance().getBooleanProperty("inventory.reservations.enabled", false);
+    }
+
+    /**
+     * Keep the ledger off for the rest of this process whatever the configuration says,
+     * for when other processes may write stock too. Call before the first checkout.
+     */
+    public static void disable() {
+        disabled = true;
+    }
+
+    /**
+     * Stock that can still be reserved. The counter is seeded from the given product
+     * if this is the first time it is seen, so no extra query is needed.
+     */
+    public int getAvailable(Product product) {
+        return stock.computeIfAbsent(product.getId(), id -> new Stock(product.getStockQuantity())).available.get();
+    }
+
+    public long reserve(int[] productIds, int[] quantities) throws SQLException {
+        return reserve(productIds, quantities, defaultTtlMillis);
+    }
+
+    /**
+     * Hold stock for every line, or for none of them.
+     * @return Reservation id, or -1 if a product is unknown or short on stock
+     */
+    public long reserve(int[] productIds, int[] quantities, long ttlMillis) throws SQLException {
+        if (productIds.length != quantities.length) {
+            throw new IllegalArgumentException("productIds and quantities must have the same length");
+        }
+        for (int quantity : quantities) {
+            if (quantity <= 0) {
+                throw new IllegalArgumentException("Reserved quantities must be positive");
+            }
+        }
+        seed(productIds);
+
+        int taken = 0;
+        while (taken < productIds.length) {
+            Stock productStock = stock.get(productIds[taken]);
+            if (productStock == null || !productStock.tryTake(quantities[taken])) {
+                break;
+            }
+            productStock.reserved.addAndGet(quantities[taken]);
+            taken++;
+        }
+
+        if (taken < productIds.length) {
+            for (int i = 0; i < taken; i++) {
+                giveBack(productIds[i], quantities[i]);
+            }
+            return -1;
+        }
+
+        long id = nextReservationId.incrementAndGet();
+        reservations.put(id, new Reservation(id, productIds.clone(), quantities.clone(),
+                System.currentTimeMillis() + ttlMillis, ttlMillis));
+        reservedCount.increment();
+        return id;
+    }
+
+    /**
+     * Turn a reservation into a sale; the products table is updated by the next flush.
+     * A reservation that expired in the meantime takes its stock again, even if that
+     * oversells, because the order it belongs to has already been placed.
+     * @return false if the reservation is unknown or was already committed or released
+     */
+    public boolean commit(long reservationId) {
+        Reservation reservation = reservations.get(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+
+        if (reservation.state.compareAndSet(OPEN, SETTLED)) {
+            for (int i = 0; i < reservation.productIds.length; i++) {
+                Stock productStock = stock.get(reservation.productIds[i]);
+                if (productStock != null) {
+                    productStock.reserved.addAndGet(-reservation.quantities[i]);
+                    productStock.unflushed.addAndGet(-reservation.quantities[i]);
+                }
+            }
+        } else if (reservation.state.compareAndSet(EXPIRED, SETTLED)) {
+            for (int i = 0; i < reservation.productIds.length; i++) {
+                Stock productStock = stock.get(reservation.productIds[i]);
+                if (productStock != null) {
+                    if (productStock.available.addAndGet(-reservation.quantities[i]) < 0) {
+                        System.err.println("Product " + reservation.productIds[i]
+                                + " oversold after a stock reservation expired");
+                    }
+                    productStock.unflushed.addAndGet(-reservation.quantities[i]);
+                }
+            }
+        } else {
+            return false;
+        }
+
+        reservations.remove(reservationId, reservation);
+        committedCount.increment();
+        return true;
+    }
+
+    /**
+     * Give the held stock back.
+     * @return false if the reservation is unknown or was already committed or released
+     */
+    public boolean release(long reservationId) {
+        Reservation reservation = reservations.get(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+
+        if (reservation.state.compareAndSet(OPEN, SETTLED)) {
+            for (int i = 0; i < reservation.productIds.length; i++) {
+                giveBack(reservation.productIds[i], reservation.quantities[i]);
+            }
+        } else if (!reservation.state.compareAndSet(EXPIRED, SETTLED)) {
+            return false;
+        }
+
+        reservations.remove(reservationId, reservation);
+        releasedCount.increment();
+        return true;
+    }
+
+    /**
+     * Add a (possibly negative) amount to a product's stock, e.g. a restock.
+     * @return false if the product does not exist or the stock would go below zero
+     */
+    public boolean adjust(int productId, int quantityChange) throws SQLException {
+        seed(new int[]{productId});
+        Stock productStock = stock.get(productId);
+        if (productStock == null) {
+            return false;
+        }
+
+        if (quantityChange < 0) {
+            if (!productStock.tryTake(-quantityChange)) {
+                return false;
+            }
+        } else {
+            productStock.available.addAndGet(quantityChange);
+        }
+        productStock.unflushed.addAndGet(quantityChange);
+        return true;
+    }
+
+    /**
+     * Re-read a product's stock after it was set directly in the database.
+     * Call flush() before making such a change so no pending write lands on top of it.
+     */
+    public void reload(int productId) throws SQLException {
+        // Under the flush lock, so the database figure is not moved by a write in progress
+        synchronized (flushLock) {
+            Product product = productDAO.getProductById(productId);
+            if (product == null) {
+                stock.remove(productId);
+                return;
+            }
+
+            Stock productStock = stock.get(productId);
+            if (productStock != null) {
+                // Applied as a change, so takes and releases made meanwhile are kept
+                int previous = productStock.database.getAndSet(product.getStockQuantity());
+                productStock.available.addAndGet(product.getStockQuantity() - previous);
+            }
+        }
+    }
+
+    /**
+     * Drop the counter of a product that no longer exists.
+     */
+    public void forget(int productId) {
+        stock.remove(productId);
+    }
+
+    /**
+     * Write every pending stock change back to the products table in one batch.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            TreeMap<Integer, Integer> changes = new TreeMap<>();
+            for (Map.Entry<Integer, Stock> entry : stock.entrySet()) {
+                int change = entry.getValue().unflushed.getAndSet(0);
+                if (change != 0) {
+                    changes.put(entry.getKey(), change);
+                }
+            }
+            if (changes.isEmpty()) {
+                return;
+            }
+
+            // Sorted by product id so concurrent writers lock rows in the same order
+            int[] productIds = new int[changes.size()];
+            int[] quantityChanges = new int[changes.size()];
+            int index = 0;
+            for (Map.Entry<Integer, Integer> entry : changes.entrySet()) {
+                productIds[index] = entry.getKey();
+                quantityChanges[index] = entry.getValue();
+                index++;
+            }
+
+            int[] failedLines;
+            try {
+                failedLines = productDAO.adjustStockBatch(productIds, quantityChanges);
+                flushCount.increment();
+                ProductCache.getInstance().invalidate(productIds);
+            } catch (SQLException e) {
+                System.err.println("Error writing back stock changes: " + e.getMessage());
+                // Keep the changes for the next flush
+                for (int i = 0; i < productIds.length; i++) {
+                    Stock productStock = stock.get(productIds[i]);
+                    if (productStock != null) {
+                        productStock.unflushed.addAndGet(quantityChanges[i]);
+                    }
+                }
+                return;
+            }
+
+            boolean[] failed = new boolean[productIds.length];
+            for (int line : failedLines) {
+                failed[line] = true;
+            }
+            for (int i = 0; i < productIds.length; i++) {
+                Stock productStock = stock.get(productIds[i]);
+                if (productStock == null) {
+                    continue;
+                }
+                if (failed[i]) {
+                    // Not written, so keep the change for the next flush
+                    productStock.unflushed.addAndGet(quantityChanges[i]);
+                } else {
+                    productStock.database.addAndGet(quantityChanges[i]);
+                }
+            }
+
+            for (int line : failedLines) {
+                System.err.println("Stock for product " + productIds[line]
+                        + " no longer matches the database; reloading it");
+                try {
+                    reload(productIds[line]);
+                } catch (SQLException e) {
+                    System.err.println("Error reloading stock: " + e.getMessage());
+                    stock.remove(productIds[line]);
+                }
+            }
+        }
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (Reservation reservation : reservations.values()) {
+            if (now < reservation.expiresAt) {
+                continue;
+            }
+            if (reservation.state.compareAndSet(OPEN, EXPIRED)) {
+                for (int i = 0; i < reservation.productIds.length; i++) {
+                    giveBack(reservation.productIds[i], reservation.quantities[i]);
+                }
+                expiredCount.increment();
+            } else if (reservation.state.get() == EXPIRED && now >= reservation.expiresAt + reservation.ttlMillis) {
+                // Kept for one more TTL in case a late commit still arrives
+                reservations.remove(reservation.id, reservation);
+            }
+        }
+    }
+
+    /**
+     * Create counters for any of the given products that don't have one yet,
+     * with a single batched lookup.
+     */
+    private void seed(int[] productIds) throws SQLException {
+        List<Integer> missing = new ArrayList<>();
+        for (int productId : productIds) {
+            if (!stock.containsKey(productId)) {
+                missing.add(productId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        int[] ids = new int[missing.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = missing.get(i);
+        }
+        for (Product product : productDAO.getProductsByIds(ids).values()) {
+            stock.putIfAbsent(product.getId(), new Stock(product.getStockQuantity()));
+        }
+    }
+
+    private void giveBack(int productId, int quantity) {
+        Stock productStock = stock.get(productId);
+        if (productStock != null) {
+            productStock.reserved.addAndGet(-quantity);
+            productStock.available.addAndGet(quantity);
+        }
+    }
+
+    public int getOpenReservationCount() {
+        int open = 0;
+        for (Reservation reservation : reservations.values()) {
+            if (reservation.state.get() == OPEN) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    public long getReservedCount() {
+        return reservedCount.sum();
+    }
+
+    public long getCommittedCount() {
+        return committedCount.sum();
+    }
+
+    public long getReleasedCount() {
+        return releasedCount.sum();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    /**
+     * Stop the background work and write back whatever is still pending.
+     */
+    public void close() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Close the shared ledger if it was ever started. Safe to call on application exit.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    private static class Stock {
+        // Database stock, plus unflushed changes, minus open reservations
+        private final AtomicInteger available;
+        private final AtomicInteger reserved = new AtomicInteger();
+        // Net change not yet written to the products table
+        private final AtomicInteger unflushed = new AtomicInteger();
+        // Stock in the products table as of the last read or flush
+        private final AtomicInteger database;
+
+        Stock(int initial) {
+            this.available = new AtomicInteger(initial);
+            this.database = new AtomicInteger(initial);
+        }
+
+        boolean tryTake(int quantity) {
+            while (true) {
+                int current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+                if (available.compareAndSet(current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static class Reservation {
+        private final long id;
+        private final int[] productIds;
+        private final int[] quantities;
+        private final long expiresAt;
+        private final long ttlMillis;
+        private final AtomicInteger state = new AtomicInteger(OPEN);
+
+        Reservation(long id, int[] productIds, int[] quantities, long expiresAt, long ttlMillis) {
+            this.id = id;
+            this.productIds = productIds;
+            this.quantities = quantities;
+            this.expiresAt = expiresAt;
+            this.ttlMillis = ttlMillis;
+        }
+    }
+}
\ No newline at end of file
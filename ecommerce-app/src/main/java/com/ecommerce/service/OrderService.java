@@ -1,6 +1,7 @@
 package com.ecommerce.service;
 
 import com.ecommerce.config.DatabaseConnection;
+import com.ecommerce.dao.CartItemDAO;
 import com.ecommerce.dao.OrderDAO;
 import com.ecommerce.dao.OrderItemDAO;
 import com.ecommerce.dao.ProductDAO;
@@ -8,24 +9,28 @@ import com.ecommerce.model.CartItem;
 import com.ecommerce.model.Order;
 import com.ecommerce.model.OrderItem;
 import com.ecommerce.model.User;
+import com.ecommerce.util.Money;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Comparator;
 import java.util.List;
 
 public class OrderService {
     private final OrderDAO orderDAO;
     private final OrderItemDAO orderItemDAO;
     private final ProductDAO productDAO;
-    private final CartService cartService;
+    private final CartItemDAO cartItemDAO;
+    private final SessionRegistry sessions;
 
     public OrderService() {
         this.orderDAO = new OrderDAO();
         this.orderItemDAO = new OrderItemDAO();
         this.productDAO = new ProductDAO();
-        this.cartService = new CartService();
+        this.cartItemDAO = new CartItemDAO();
+        this.sessions = SessionRegistry.getInstance();
     }
 
     public List<Order> getUserOrders(int userId) {
@@ -52,76 +57,110 @@ public class OrderService {
         }
     }
 
+    /**
+     * Place an order for everything in the user's cart.
+     * When group commit is enabled the checkout is queued and placed together with
+     * other concurrent checkouts; otherwise it runs in its own transaction.
+     * @return The new order id, or -1 if the order could not be placed
+     */
     public int createOrder(User user, String shippingAddress) {
+        if (CheckoutBatcher.isEnabled()) {
+            return CheckoutBatcher.getInstance().checkout(user, shippingAddress);
+        }
+        return createSingleOrder(user, shippingAddress);
+    }
+
+    /**
+     * Place an order in a transaction of its own, bypassing group commit.
+     */
+    public int createSingleOrder(User user, String shippingAddress) {
+        InventoryReservationService inventory = InventoryReservationService.isEnabled()
+                ? InventoryReservationService.getInstance() : null;
         Connection connection = null;
+        long reservation = -1;
         try {
-            // Get user's cart items
-            List<CartItem> cartItems = cartService.getUserCart(user.getId());
-            if (cartItems.isEmpty()) {
-                System.err.println("Cart is empty");
+            // Save any cart edits still held in memory, so the database copy is complete
+            if (!CartStore.getInstance().flush(user.getId())) {
+                System.err.println("Could not save cart changes before checkout");
                 return -1;
             }
 
-            // Validate stock availability
-            if (!cartService.validateCartItemsAvailability(user.getId())) {
-                System.err.println("Some items are out of stock");
-                return -1;
-            }
-
-            // Calculate total amount
-            double totalAmount = cartService.calculateCartTotal(user.getId());
-
             // Start transaction
-            connection = DatabaseConnection.getConnection();
+            connection = DatabaseConnection.getInstance().getConnection();
             connection.setAutoCommit(false);
 
-            // Create order
-            Order order = new Order();
-            order.setUser(user);
-            order.setTotalAmount(totalAmount);
-            order.setStatus("Pending");
-            order.setOrderDate(new Date());
-            order.setShippingAddress(shippingAddress);
-
-            int orderId = orderDAO.createOrder(order);
-            if (orderId == -1) {
+            // Read the cart with current prices and lock its rows, as group commit does,
+            // rather than trusting product copies held in memory since the cart was loaded
+            List<CartItem> cartItems = cartItemDAO.getCartItemsByUsers(connection, new int[] { user.getId() })
+                    .getOrDefault(user.getId(), new ArrayList<>());
+            if (cartItems.isEmpty()) {
+                System.err.println("Cart is empty");
                 connection.rollback();
                 return -1;
             }
 
-            // Create order items and update stock
-            List<OrderItem> orderItems = new ArrayList<>();
-            for (CartItem cartItem : cartItems) {
-                // Create order item
-                OrderItem orderItem = new OrderItem();
-                orderItem.setOrderId(orderId);
-                orderItem.setProduct(cartItem.getProduct());
-                orderItem.setQuantity(cartItem.getQuantity());
-                orderItem.setPrice(cartItem.getProduct().getPrice());
-                orderItems.add(orderItem);
-
-                // Update stock
-                if (!productDAO.updateStock(cartItem.getProduct().getId(), 
-                        cartItem.getProduct().getStockQuantity() - cartItem.getQuantity())) {
+            // Take stock in product id order so concurrent checkouts lock rows consistently
+            List<CartItem> lines = new ArrayList<>(cartItems);
+            lines.sort(Comparator.comparingInt(item -> item.getProduct().getId()));
+            int[] productIds = new int[lines.size()];
+            int[] quantities = new int[lines.size()];
+            for (int i = 0; i < lines.size(); i++) {
+                productIds[i] = lines.get(i).getProduct().getId();
+                quantities[i] = lines.get(i).getQuantity();
+            }
+
+            if (inventory != null) {
+                // Hold the stock in memory; the products table is updated by the ledger's write-back
+                reservation = inventory.reserve(productIds, quantities);
+                if (reservation == -1) {
+                    System.err.println("Insufficient stock");
+                    connection.rollback();
+                    return -1;
+                }
+            }
+
+            if (inventory == null) {
+                // Each decrement only applies if enough stock is left, which replaces a separate availability check
+                int[] failedLines = productDAO.decrementStock(connection, productIds, quantities);
+                if (failedLines.length > 0) {
+                    for (int line : failedLines) {
+                        System.err.println("Insufficient stock for product " + lines.get(line).getProduct().getName());
+                    }
                     connection.rollback();
                     return -1;
                 }
             }
 
+            // Create order
+            Order order = buildOrder(user, shippingAddress, cartItems);
+            int orderId = orderDAO.createOrder(connection, order);
+            if (orderId == -1) {
+                connection.rollback();
+                return -1;
+            }
+
             // Save order items
-            if (!orderItemDAO.addBatchOrderItems(orderItems)) {
+            if (!orderItemDAO.addBatchOrderItems(connection, buildOrderItems(orderId, cartItems))) {
                 connection.rollback();
                 return -1;
             }
 
             // Clear cart
-            if (!cartService.clearCart(user.getId())) {
+            if (!cartItemDAO.clearCart(connection, user.getId())) {
                 connection.rollback();
                 return -1;
             }
 
             // Commit transaction
             connection.commit();
+            CartStore.getInstance().discard(user.getId());
+            if (inventory == null) {
+                ProductCache.getInstance().invalidate(productIds);
+            }
+            if (reservation != -1) {
+                inventory.commit(reservation);
+                reservation = -1;
+            }
             return orderId;
         } catch (SQLException e) {
             System.err.println("Error creating order: " + e.getMessage());
@@ -134,6 +173,9 @@ public class OrderService {
             }
             return -1;
         } finally {
+            if (reservation != -1) {
+                inventory.release(reservation);
+            }
             try {
                 if (connection != null) {
                     connection.setAutoCommit(true);
@@ -141,7 +183,76 @@ public class OrderService {
             } catch (SQLException e) {
                 System.err.println("Error resetting auto-commit: " + e.getMessage());
             }
+            DatabaseConnection.closeConnection(connection);
+        }
+    }
+
+    /**
+     * Build a pending order for the given cart, with the total computed from the cart lines.
+     */
+    static Order buildOrder(User user, String shippingAddress, List<CartItem> cartItems) {
+        long totalAmountCents = 0;
+        for (CartItem cartItem : cartItems) {
+            totalAmountCents = Money.add(totalAmountCents, cartItem.getSubtotalCents());
+        }
+
+        Order order = new Order();
+        order.setUser(user);
+        order.setTotalAmountCents(totalAmountCents);
+        order.setStatus("Pending");
+        order.setOrderDate(new Timestamp(System.currentTimeMillis()));
+        order.setShippingAddress(shippingAddress);
+        return order;
+    }
+
+    static List<OrderItem> buildOrderItems(int orderId, List<CartItem> cartItems) {
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (CartItem cartItem : cartItems) {
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrderId(orderId);
+            orderItem.setProduct(cartItem.getProduct());
+            orderItem.setQuantity(cartItem.getQuantity());
+            orderItem.setPricePerUnitCents(cartItem.getProduct().getPriceCents());
+            orderItem.calculateSubtotal();
+            orderItems.add(orderItem);
+        }
+        return orderItems;
+    }
+
+    // Variants taking a session token, for serving many users at once
+
+    public int createOrder(String sessionToken, String shippingAddress) {
+        User user = sessions.getUser(sessionToken);
+        if (user == null) {
+            System.err.println("Session expired or invalid");
+            return -1;
+        }
+        return createOrder(user, shippingAddress);
+    }
+
+    public List<Order> getUserOrders(String sessionToken) {
+        User user = sessions.getUser(sessionToken);
+        if (user == null) {
+            System.err.println("Session expired or invalid");
+            return new ArrayList<>();
+        }
+        return getUserOrders(user.getId());
+    }
+
+    /**
+     * Details of an order placed by the session's user; admins may read any order.
+     */
+    public Order getOrderDetails(String sessionToken, int orderId) {
+        User user = sessions.getUser(sessionToken);
+        if (user == null) {
+            System.err.println("Session expired or invalid");
+            return null;
+        }
+        Order order = getOrderDetails(orderId);
+        if (order != null && order.getUserId() != user.getId() && !user.isAdmin()) {
+            return null;
         }
+        return order;
     }
 
     public boolean updateOrderStatus(int orderId, String newStatus) {
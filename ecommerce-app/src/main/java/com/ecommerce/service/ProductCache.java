@@ -0,0 +1,221 @@
+package com.ecommerce.service;
+
+import com.ecommerce.config.DatabaseConnection;
+import com.ecommerce.dao.ProductDAO;
+import com.ecommerce.model.Product;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache in front of ProductDAO.getProductById.
+ * Entries expire after a fixed time to live, and once the cache holds more than its
+ * maximum size the least recently read entries are dropped. Concurrent misses on the same
+ * product share one query: the first caller loads it and the others wait for its result.
+ * Writers must call invalidate() after changing a product row, which also stops a load
+ * that was already running from caching what it read before the change.
+ */
+public class ProductCache {
+    private static ProductCache instance;
+
+    private final ProductDAO productDAO;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, CompletableFuture<Product>> loading = new ConcurrentHashMap<>();
+    private final Object trimLock = new Object();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public ProductCache(int maxSize, long ttlMillis) {
+        if (maxSize < 1 || ttlMillis < 1) {
+            throw new IllegalArgumentException("Invalid product cache settings: maxSize=" + maxSize
+                    + ", ttl=" + ttlMillis + "ms");
+        }
+        this.productDAO = new ProductDAO();
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public static synchronized ProductCache getInstance() {
+        if (instance == null) {
+            DatabaseConnection config = DatabaseConnection.getInstance();
+            instance = new ProductCache(
+                    config.getIntProperty("product.cache.maxSize", 10000),
+                    config.getLongProperty("product.cache.ttlMillis", 30000));
+        }
+        return instance;
+    }
+
+    /**
+     * The product with the given id, or null if there is none.
+     * The returned product is a copy, so callers may change it freely.
+     */
+    public Product get(int productId) throws SQLException {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(productId);
+        if (entry != null) {
+            if (now - entry.loadedAt < ttlMillis) {
+                entry.lastAccess = now;
+                hitCount.increment();
+                return copyOf(entry.product);
+            }
+            entries.remove(productId, entry);
+        }
+        missCount.increment();
+
+        CompletableFuture<Product> load = new CompletableFuture<>();
+        CompletableFuture<Product> running = loading.putIfAbsent(productId, load);
+        if (running != null) {
+            return copyOf(await(productId, running));
+        }
+
+        Product product;
+        try {
+            product = productDAO.getProductById(productId);
+            loadCount.increment();
+        } catch (SQLException | RuntimeException e) {
+            loading.remove(productId, load);
+            load.completeExceptionally(e);
+            throw e;
+        }
+
+        // If the product was invalidated while we read it, the row may have changed since; don't keep it.
+        // Published inside the compute, so invalidate() either removes the load first or runs after the put.
+        loading.computeIfPresent(productId, (id, current) -> {
+            if (current == load && product != null) {
+                entries.put(productId, new Entry(product, now));
+            }
+            return current == load ? null : current;
+        });
+        if (entries.size() > maxSize) {
+            trim();
+        }
+        load.complete(product);
+        return copyOf(product);
+    }
+
+    private Product await(int productId, CompletableFuture<Product> running) throws SQLException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for product " + productId);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Error loading product " + productId, e.getCause());
+        }
+    }
+
+    /**
+     * Drop the least recently read entries until the cache is a tenth below its maximum size,
+     * so the sort is paid for once per many inserts rather than on every one.
+     */
+    private void trim() {
+        synchronized (trimLock) {
+            int excess = entries.size() - (maxSize - maxSize / 10);
+            if (excess <= 0) {
+                return;
+            }
+
+            List<Map.Entry<Integer, Entry>> byAccess = new ArrayList<>(entries.entrySet());
+            byAccess.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (int i = 0; i < excess && i < byAccess.size(); i++) {
+                Map.Entry<Integer, Entry> oldest = byAccess.get(i);
+                if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                    evictionCount.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget a product after its row was changed or deleted, so the next read goes to the database.
+     */
+    public void invalidate(int productId) {
+        // Removing the load first stops it publishing; anything it already put is removed next
+        loading.remove(productId);
+        entries.remove(productId);
+        ProductSearchIndex.getInstance().markStale(productId);
+    }
+
+    public void invalidate(int[] productIds) {
+        for (int productId : productIds) {
+            invalidate(productId);
+        }
+    }
+
+    public void invalidateAll() {
+        loading.clear();
+        entries.clear();
+        ProductSearchIndex.getInstance().markAllStale();
+    }
+
+    static Product copyOf(Product product) {
+        if (product == null) {
+            return null;
+        }
+        Product copy = new Product();
+        copy.setId(product.getId());
+        copy.setName(product.getName());
+        copy.setDescription(product.getDescription());
+        copy.setPriceCents(product.getPriceCents());
+        copy.setStockQuantity(product.getStockQuantity());
+        copy.setImagePath(product.getImagePath());
+        copy.setCategory(product.getCategory());
+        return copy;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Number of queries actually sent; lower than the miss count when concurrent misses shared a load.
+     */
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    private static class Entry {
+        private final Product product;
+        private final long loadedAt;
+        private volatile long lastAccess;
+
+        Entry(Product product, long loadedAt) {
+            this.product = product;
+            this.loadedAt = loadedAt;
+            this.lastAccess = loadedAt;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,406 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dao.ProductDAO;
+import com.ecommerce.model.Product;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product names and descriptions.
+ * Each term maps to a sorted array of product ids; a query intersects the postings
+ * of its terms, treating the last term as a prefix so results update while typing.
+ * Shared by every ProductService instance.
+ *
+ * Each product is kept as a private copy, and results are copies too, so callers cannot
+ * change what the index holds. ProductCache marks a copy stale whenever the product's row
+ * is written, e.g. a stock or price change, and the next search that returns it reads it
+ * again from the database, so results never show stock or prices from before a write.
+ * Writes that arrive while the index is being built are queued and applied once the
+ * table has been read, so they are not lost behind the build.
+ */
+public class ProductSearchIndex {
+    private static final int[] EMPTY = new int[0];
+    private static ProductSearchIndex instance;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    // Latest copy of each indexed product; null while it is stale
+    private final Map<Integer, Product> documents = new HashMap<>();
+    private final Map<Integer, String[]> documentTerms = new HashMap<>();
+    // Bumped whenever a copy is marked stale, so a re-read that raced with it is not kept
+    private final AtomicLong staleGeneration = new AtomicLong();
+    // Writes made while the index is being built; building is guarded by this list
+    private final List<Runnable> pendingWrites = new ArrayList<>();
+    private boolean building;
+    private volatile boolean loaded;
+
+    private ProductSearchIndex() {}
+
+    public static synchronized ProductSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new ProductSearchIndex();
+        }
+        return instance;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Build the index from the products table if it has not been built yet.
+     * Rows are streamed, so the whole table is never held as a list.
+     */
+    public void ensureLoaded(ProductDAO productDAO) throws SQLException {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            synchronized (pendingWrites) {
+                building = true;
+            }
+            lock.writeLock().lock();
+            try {
+                terms.clear();
+                documents.clear();
+                documentTerms.clear();
+                productDAO.streamAll(this::addUnlocked);
+
+                // Apply what changed while the table was being read, after the rows it touched
+                synchronized (pendingWrites) {
+                    for (Runnable write : pendingWrites) {
+                        write.run();
+                    }
+                    loaded = true;
+                }
+            } finally {
+                synchronized (pendingWrites) {
+                    pendingWrites.clear();
+                    building = false;
+                }
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Drop everything; the next search rebuilds from the database.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            terms.clear();
+            documents.clear();
+            documentTerms.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addProduct(Product product) {
+        Product copy = ProductCache.copyOf(product);
+        write(() -> {
+            removeUnlocked(copy.getId());
+            addUnlocked(copy);
+        });
+    }
+
+    public void updateProduct(Product product) {
+        addProduct(product);
+    }
+
+    /**
+     * Forget the copy of a product whose row was written, keeping its terms; the next
+     * search that returns it reads it again. Called by ProductCache.invalidate.
+     */
+    public void markStale(int productId) {
+        staleGeneration.incrementAndGet();
+        write(() -> {
+            if (documentTerms.containsKey(productId)) {
+                documents.put(productId, null);
+            }
+        });
+    }
+
+    /**
+     * Forget the copy of every product, e.g. after a category they point at was renamed.
+     */
+    public void markAllStale() {
+        staleGeneration.incrementAndGet();
+        write(() -> documents.replaceAll((id, product) -> null));
+    }
+
+    public void removeProduct(int productId) {
+        write(() -> removeUnlocked(productId));
+    }
+
+    /**
+     * Apply a change to the index: queue it while the index is being built, skip it while
+     * there is no index, since the next build reads the row anyway.
+     */
+    private void write(Runnable change) {
+        synchronized (pendingWrites) {
+            if (building) {
+                pendingWrites.add(change);
+                return;
+            }
+            if (!loaded) {
+                return;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find products whose name or description contains every word of the keyword.
+     * The last word also matches as a prefix. Results are copies, in product id order.
+     * Stale products are read again from the database in one batch.
+     */
+    public List<Product> search(String keyword, ProductDAO productDAO) throws SQLException {
+        String[] queryTerms = tokenize(keyword);
+        List<Product> results = new ArrayList<>();
+        if (queryTerms.length == 0) {
+            return results;
+        }
+
+        long generation = staleGeneration.get();
+        int[] ids = null;
+        List<Integer> staleIds = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < queryTerms.length; i++) {
+                int[] matches = i == queryTerms.length - 1
+                        ? prefixMatches(queryTerms[i])
+                        : exactMatches(queryTerms[i]);
+                ids = ids == null ? matches : intersect(ids, matches);
+                if (ids.length == 0) {
+                    return results;
+                }
+            }
+
+            for (int id : ids) {
+                Product product = documents.get(id);
+                if (product != null) {
+                    results.add(ProductCache.copyOf(product));
+                } else if (documents.containsKey(id)) {
+                    staleIds.add(id);
+                    results.add(null);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (staleIds.isEmpty()) {
+            return results;
+        }
+
+        // Read stale products outside the lock, then fill in their places in id order
+        int[] staleIdArray = new int[staleIds.size()];
+        for (int i = 0; i < staleIdArray.length; i++) {
+            staleIdArray[i] = staleIds.get(i);
+        }
+        Map<Integer, Product> fresh = productDAO.getProductsByIds(staleIdArray);
+        keepFresh(fresh, generation);
+
+        List<Product> merged = new ArrayList<>(results.size());
+        int staleIndex = 0;
+        for (Product product : results) {
+            if (product != null) {
+                merged.add(product);
+            } else {
+                Product reread = fresh.get(staleIds.get(staleIndex++));
+                if (reread != null) {
+                    merged.add(ProductCache.copyOf(reread));
+                }
+            }
+        }
+        return merged;
+    }
+
+    // Store re-read copies, unless a product was marked stale again while they were read
+    private void keepFresh(Map<Integer, Product> fresh, long generation) {
+        lock.writeLock().lock();
+        try {
+            if (staleGeneration.get() != generation) {
+                return;
+            }
+            for (Map.Entry<Integer, Product> entry : fresh.entrySet()) {
+                if (documents.containsKey(entry.getKey())) {
+                    documents.put(entry.getKey(), ProductCache.copyOf(entry.getValue()));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addUnlocked(Product product) {
+        int id = product.getId();
+        Set<String> unique = new LinkedHashSet<>();
+        unique.addAll(Arrays.asList(tokenize(product.getName())));
+        unique.addAll(Arrays.asList(tokenize(product.getDescription())));
+        String[] productTerms = unique.toArray(new String[0]);
+
+        for (String term : productTerms) {
+            terms.computeIfAbsent(term, t -> new Postings()).add(id);
+        }
+        documents.put(id, ProductCache.copyOf(product));
+        documentTerms.put(id, productTerms);
+    }
+
+    private void removeUnlocked(int productId) {
+        String[] productTerms = documentTerms.remove(productId);
+        documents.remove(productId);
+        if (productTerms == null) {
+            return;
+        }
+        for (String term : productTerms) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(productId) && postings.size == 0) {
+                terms.remove(term);
+            }
+        }
+    }
+
+    private int[] exactMatches(String term) {
+        Postings postings = terms.get(term);
+        return postings == null ? EMPTY : postings.toArray();
+    }
+
+    private int[] prefixMatches(String prefix) {
+        NavigableMap<String, Postings> range = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (range.isEmpty()) {
+            return EMPTY;
+        }
+        if (range.size() == 1) {
+            return range.firstEntry().getValue().toArray();
+        }
+
+        int total = 0;
+        for (Postings postings : range.values()) {
+            total += postings.size;
+        }
+        int[] merged = new int[total];
+        int offset = 0;
+        for (Postings postings : range.values()) {
+            System.arraycopy(postings.ids, 0, merged, offset, postings.size);
+            offset += postings.size;
+        }
+        Arrays.sort(merged);
+
+        // Drop duplicates in place
+        int unique = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (i == 0 || merged[i] != merged[i - 1]) {
+                merged[unique++] = merged[i];
+            }
+        }
+        return unique == merged.length ? merged : Arrays.copyOf(merged, unique);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Split text into lowercase words made of letters and digits.
+     */
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+        List<String> tokens = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    /**
+     * Sorted, growable array of product ids for one term.
+     */
+    private static class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
\ No newline at end of file
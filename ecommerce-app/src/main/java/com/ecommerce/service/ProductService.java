@@ -1,21 +1,40 @@
 package com.ecommerce.service;
 
+import com.ecommerce.config.DatabaseConnection;
 import com.ecommerce.dao.ProductDAO;
 import com.ecommerce.dao.CategoryDAO;
+import com.ecommerce.dao.CategoryRegistry;
+import com.ecommerce.dao.QueryHandle;
 import com.ecommerce.model.Product;
 import com.ecommerce.model.Category;
+import com.ecommerce.model.ProductCursor;
+import com.ecommerce.model.ProductPage;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
 public class ProductService {
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final ProductDAO productDAO;
     private final CategoryDAO categoryDAO;
+    private final CategoryRegistry categoryRegistry;
+    private final ProductSearchIndex searchIndex;
+    private final InventoryReservationService inventory;
+    private final ProductCache productCache;
+    private final int defaultPageSize;
+    private final int searchTimeoutSeconds;
 
     public ProductService() {
         this.productDAO = new ProductDAO();
         this.categoryDAO = new CategoryDAO();
+        this.categoryRegistry = CategoryRegistry.getInstance();
+        this.searchIndex = ProductSearchIndex.getInstance();
+        this.inventory = InventoryReservationService.isEnabled() ? InventoryReservationService.getInstance() : null;
+        this.productCache = ProductCache.getInstance();
+        this.defaultPageSize = DatabaseConnection.getInstance().getIntProperty("catalog.pageSize", 50);
+        this.searchTimeoutSeconds = DatabaseConnection.getInstance().getIntProperty("search.queryTimeoutSeconds", 5);
     }
 
     public List<Product> getAllProducts() {
@@ -36,18 +55,60 @@ public class ProductService {
         }
     }
 
+    public int getDefaultPageSize() {
+        return Math.max(1, Math.min(defaultPageSize, MAX_PAGE_SIZE));
+    }
+
+    public ProductPage getProductPage(int categoryId, ProductCursor cursor, boolean forward) {
+        return getProductPage(categoryId, ProductDAO.SortKey.ID, cursor, forward, defaultPageSize);
+    }
+
+    /**
+     * Read a single page of the catalog. Pass 0 as categoryId for all categories,
+     * and a null cursor for the first page.
+     */
+    public ProductPage getProductPage(int categoryId, ProductDAO.SortKey sortKey, ProductCursor cursor,
+                                      boolean forward, int pageSize) {
+        int size = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+        try {
+            return productDAO.getProductPage(categoryId, sortKey, cursor, forward, size);
+        } catch (SQLException e) {
+            System.err.println("Error retrieving product page: " + e.getMessage());
+            return new ProductPage(new ArrayList<>(), null, null, false, false);
+        }
+    }
+
     public List<Product> searchProducts(String keyword) {
         try {
-            return productDAO.searchProducts(keyword);
+            return searchProducts(keyword, null);
         } catch (SQLException e) {
             System.err.println("Error searching products: " + e.getMessage());
             return new ArrayList<>();
         }
     }
 
+    /**
+     * Search as above, for callers that may abandon the search, e.g. search-as-you-type.
+     * If the database has to be scanned, cancelling the handle stops the scan, and the scan
+     * never runs past the configured timeout.
+     * @throws SQLException if the search failed, timed out or was cancelled, so the caller
+     *         can tell it apart from a search that found nothing
+     */
+    public List<Product> searchProducts(String keyword, QueryHandle handle) throws SQLException {
+        try {
+            searchIndex.ensureLoaded(productDAO);
+            return searchIndex.search(keyword, productDAO);
+        } catch (SQLException e) {
+            System.err.println("Error searching the index: " + e.getMessage());
+        }
+        
+        // Fall back to a database scan if the index could not be built
+        return productDAO.searchProducts(keyword, handle, searchTimeoutSeconds);
+    }
+
     public Product getProductById(int productId) {
         try {
-            return productDAO.getProductById(productId);
+            return productCache.get(productId);
         } catch (SQLException e) {
             System.err.println("Error retrieving product: " + e.getMessage());
             return null;
@@ -58,17 +119,22 @@ public class ProductService {
         try {
             // Ensure the category exists
             if (product.getCategory() != null && product.getCategory().getId() > 0) {
-                Category category = categoryDAO.getCategoryById(product.getCategory().getId());
+                Category category = categoryRegistry.get(product.getCategory().getId());
                 if (category == null) {
                     System.err.println("Invalid category ID");
                     return false;
                 }
+                product.setCategory(category);
             } else {
                 System.err.println("Category is required");
                 return false;
             }
             
-            return productDAO.addProduct(product);
+            if (productDAO.addProduct(product)) {
+                searchIndex.addProduct(product);
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
             System.err.println("Error adding product: " + e.getMessage());
             return false;
@@ -77,7 +143,19 @@ public class ProductService {
 
     public boolean updateProduct(Product product) {
         try {
-            return productDAO.updateProduct(product);
+            if (inventory != null) {
+                // The row's stock is about to be overwritten, so write pending changes first
+                inventory.flush();
+            }
+            if (productDAO.updateProduct(product)) {
+                productCache.invalidate(product.getId());
+                searchIndex.updateProduct(product);
+                if (inventory != null) {
+                    inventory.reload(product.getId());
+                }
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
             System.err.println("Error updating product: " + e.getMessage());
             return false;
@@ -86,7 +164,15 @@ public class ProductService {
 
     public boolean deleteProduct(int productId) {
         try {
-            return productDAO.deleteProduct(productId);
+            if (productDAO.deleteProduct(productId)) {
+                productCache.invalidate(productId);
+                searchIndex.removeProduct(productId);
+                if (inventory != null) {
+                    inventory.forget(productId);
+                }
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
             System.err.println("Error deleting product: " + e.getMessage());
             return false;
@@ -95,20 +181,22 @@ public class ProductService {
 
     public boolean updateStock(int productId, int quantityChange) {
         try {
-            // Get current product
-            Product product = productDAO.getProductById(productId);
-            if (product == null) {
-                return false;
+            if (inventory != null) {
+                // Goes through the ledger so it stays in step with checkouts; written back with the next flush
+                if (!inventory.adjust(productId, quantityChange)) {
+                    System.err.println("Insufficient stock");
+                    return false;
+                }
+                return true;
             }
-            
-            // Calculate new quantity
-            int newQuantity = product.getStockQuantity() + quantityChange;
-            if (newQuantity < 0) {
+
+            // Applied atomically in the database, so concurrent changes are never lost
+            if (!productDAO.adjustStock(productId, quantityChange)) {
                 System.err.println("Insufficient stock");
                 return false;
             }
-            
-            return productDAO.updateStock(productId, newQuantity);
+            productCache.invalidate(productId);
+            return true;
         } catch (SQLException e) {
             System.err.println("Error updating stock: " + e.getMessage());
             return false;
@@ -117,7 +205,7 @@ public class ProductService {
 
     public List<Category> getAllCategories() {
         try {
-            return categoryDAO.getAllCategories();
+            return new ArrayList<>(categoryRegistry.getAll());
         } catch (SQLException e) {
             System.err.println("Error retrieving categories: " + e.getMessage());
             return new ArrayList<>();
@@ -126,7 +214,7 @@ public class ProductService {
 
     public Category getCategoryById(int categoryId) {
         try {
-            return categoryDAO.getCategoryById(categoryId);
+            return categoryRegistry.get(categoryId);
         } catch (SQLException e) {
             System.err.println("Error retrieving category: " + e.getMessage());
             return null;
@@ -144,7 +232,12 @@ public class ProductService {
 
     public boolean updateCategory(Category category) {
         try {
-            return categoryDAO.updateCategory(category);
+            if (categoryDAO.updateCategory(category)) {
+                // Cached products still point at the category as it was
+                productCache.invalidateAll();
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
             System.err.println("Error updating category: " + e.getMessage());
             return false;
@@ -0,0 +1,259 @@
+package com.ecommerce.service;
+
+import com.ecommerce.config.DatabaseConnection;
+import com.ecommerce.model.User;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logged-in sessions, keyed by an opaque random token, so one JVM can serve many users at once.
+ * A session expires once it has not been used for the time to live. Expiry is driven by a
+ * timer wheel: each session sits in the slot of its deadline, and using it only records the
+ * time. When the wheel reaches a slot, sessions used since are moved on to their new deadline
+ * and the rest are dropped, so neither a lookup nor a sweep ever scans every session.
+ * A user's in-memory cart is written out and evicted when their last session ends.
+ */
+public class SessionRegistry {
+    private static final int TOKEN_BYTES = 32;
+    private static SessionRegistry instance;
+
+    private final long ttlMillis;
+    private final long tickMillis;
+    private final List<Queue<Session>> wheel;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    // Live sessions per user; only changed through merge/computeIfPresent so updates are atomic
+    private final ConcurrentHashMap<Integer, Integer> sessionsPerUser = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService ticker;
+    // Last tick whose slot has been processed; only touched by the ticker thread
+    private long processedTick;
+
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder expiredCount = new LongAdder();
+
+    public SessionRegistry(long ttlMillis, long tickMillis) {
+        if (tickMillis < 1 || ttlMillis < tickMillis) {
+            throw new IllegalArgumentException("Invalid session settings: ttl=" + ttlMillis
+                    + "ms, tick=" + tickMillis + "ms");
+        }
+        this.ttlMillis = ttlMillis;
+        this.tickMillis = tickMillis;
+
+        // One revolution covers a whole time to live plus the slot being processed,
+        // so every deadline falls within the next turn
+        int slots = (int) ((ttlMillis + tickMillis - 1) / tickMillis) + 2;
+        this.wheel = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            wheel.add(new ConcurrentLinkedQueue<>());
+        }
+        this.processedTick = System.currentTimeMillis() / tickMillis;
+
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized SessionRegistry getInstance() {
+        if (instance == null) {
+            DatabaseConnection config = DatabaseConnection.getInstance();
+            instance = new SessionRegistry(
+                    config.getLongProperty("session.ttlMillis", 1800000),
+                    config.getLongProperty("session.tickMillis", 1000));
+        }
+        return instance;
+    }
+
+    /**
+     * Start a session for a user who has just logged in.
+     * @return The session token to send with later requests
+     */
+    public String create(User user) {
+        return create(user, true);
+    }
+
+    /**
+     * Start a session that only ends on logout, as for the desktop application's one user.
+     */
+    public String create(User user, boolean expires) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Session session = new Session(token, user, expires);
+        sessions.put(token, session);
+        sessionsPerUser.merge(user.getId(), 1, Integer::sum);
+        if (expires) {
+            schedule(session);
+        }
+        createdCount.increment();
+        return token;
+    }
+
+    /**
+     * The session's user, or null if the token is unknown or has expired. Counts as a use of the session.
+     */
+    public User getUser(String token) {
+        Session session = get(token);
+        return session == null ? null : session.user;
+    }
+
+    public Session get(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (session.expires && now - session.lastAccess >= ttlMillis) {
+            // Past its deadline but the wheel has not got to it yet
+            end(session);
+            return null;
+        }
+        session.lastAccess = now;
+        return session;
+    }
+
+    /**
+     * End a session, e.g. on logout. Unknown tokens are ignored.
+     */
+    public void invalidate(String token) {
+        if (token != null) {
+            Session session = sessions.get(token);
+            if (session != null) {
+                end(session);
+            }
+        }
+    }
+
+    /**
+     * End every session of a user, e.g. after their account was changed or deleted,
+     * as sessions hold the user as it was at login.
+     */
+    public void invalidateUser(int userId) {
+        for (Session session : sessions.values()) {
+            if (session.user.getId() == userId) {
+                end(session);
+            }
+        }
+    }
+
+    private void end(Session session) {
+        if (!sessions.remove(session.token, session)) {
+            return;
+        }
+        int userId = session.user.getId();
+        // Decrement and remove in one step, so a login racing with this logout keeps its count
+        Integer remaining = sessionsPerUser.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+        if (remaining == null) {
+            // Last session gone: write the cart out now rather than on the next flush, and stop holding it
+            CartStore.getInstance().evict(userId);
+        }
+    }
+
+    private void schedule(Session session) {
+        long deadlineTick = (session.lastAccess + ttlMillis + tickMillis - 1) / tickMillis;
+        wheel.get((int) (deadlineTick % wheel.size())).add(session);
+    }
+
+    private void advance() {
+        try {
+            long now = System.currentTimeMillis();
+            long currentTick = now / tickMillis;
+            // Catch up on every slot passed since the last run, in case this one ran late
+            while (processedTick < currentTick) {
+                processedTick++;
+                Queue<Session> slot = wheel.get((int) (processedTick % wheel.size()));
+                for (int remaining = slot.size(); remaining > 0; remaining--) {
+                    Session session = slot.poll();
+                    if (session == null) {
+                        break;
+                    }
+                    if (!sessions.containsKey(session.token)) {
+                        continue;
+                    }
+                    if (now - session.lastAccess >= ttlMillis) {
+                        end(session);
+                        expiredCount.increment();
+                    } else {
+                        schedule(session);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error expiring sessions: " + e.getMessage());
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Stop the shared registry's expiry thread if it was ever started. Safe to call on application exit.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    public static class Session {
+        private final String token;
+        private final User user;
+        private final boolean expires;
+        private final long createdAt;
+        private volatile long lastAccess;
+
+        Session(String token, User user, boolean expires) {
+            this.token = token;
+            this.user = user;
+            this.expires = expires;
+            this.createdAt = System.currentTimeMillis();
+            this.lastAccess = createdAt;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public User getUser() {
+            return user;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public long getLastAccess() {
+            return lastAccess;
+        }
+    }
+}
\ No newline at end of file
@@ -81,7 +81,7 @@ public class AdminDashboardPanel extends JPanel {
         manageProductsButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                mainFrame.showPanel(new ProductManagementPanel(mainFrame));
+                mainFrame.showProductManagementPanel();
             }
         });
 
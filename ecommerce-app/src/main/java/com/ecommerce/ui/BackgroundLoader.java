@@ -0,0 +1,122 @@
+package com.ecommerce.ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Runs a panel's database work on a SwingWorker thread and hands the result back on the
+ * Event Dispatch Thread, so a slow query never freezes the window.
+ * A loader runs one task at a time: starting another, or calling cancel, makes the one in
+ * progress stale, and a stale task's result is dropped even if it already finished.
+ * Create one loader per independent kind of work in a panel, e.g. one for the product list
+ * and one for the cart count, so they do not cancel each other.
+ * All methods must be called on the Event Dispatch Thread.
+ */
+public class BackgroundLoader {
+    private final Component owner;
+    private Consumer<Boolean> loadingListener;
+    private SwingWorker<?, ?> current;
+    // Bumped for every load and cancel; a task only delivers if it is still the latest
+    private int generation;
+
+    public BackgroundLoader(Component owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Also cancel whenever the owner is hidden, e.g. when MainFrame switches to another card.
+     */
+    public BackgroundLoader cancelWhenHidden() {
+        owner.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                cancel();
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Called with true when a load starts and false when the last one ends, to show or hide
+     * a placeholder or disable buttons.
+     */
+    public void setLoadingListener(Consumer<Boolean> loadingListener) {
+        this.loadingListener = loadingListener;
+    }
+
+    /**
+     * Run the task in the background; errors are reported in a dialog over the owner.
+     */
+    public <T> void load(Callable<T> task, Consumer<T> onSuccess) {
+        load(task, onSuccess, e -> JOptionPane.showMessageDialog(owner,
+                "Error loading data: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    public <T> void load(Callable<T> task, Consumer<T> onSuccess, Consumer<Exception> onFailure) {
+        cancelCurrent();
+        int loadGeneration = ++generation;
+
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return task.call();
+            }
+
+            @Override
+            protected void done() {
+                if (loadGeneration != generation || isCancelled()) {
+                    return;
+                }
+                current = null;
+                setLoading(false);
+                try {
+                    onSuccess.accept(get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    onFailure.accept(cause instanceof Exception ? (Exception) cause : e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        current = worker;
+        setLoading(true);
+        worker.execute();
+    }
+
+    /**
+     * Drop the task in progress, if any. Its thread is interrupted, but a JDBC call that does
+     * not notice may still run to the end; its result is ignored either way.
+     */
+    public void cancel() {
+        if (current != null) {
+            cancelCurrent();
+            generation++;
+            setLoading(false);
+        }
+    }
+
+    public boolean isLoading() {
+        return current != null;
+    }
+
+    private void cancelCurrent() {
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+    }
+
+    private void setLoading(boolean loading) {
+        owner.setCursor(loading ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+        if (loadingListener != null) {
+            loadingListener.accept(loading);
+        }
+    }
+}
\ No newline at end of file
@@ -3,14 +3,24 @@ package com.ecommerce.ui;
 import com.ecommerce.model.CartItem;
 import com.ecommerce.model.User;
 import com.ecommerce.service.CartService;
+import com.ecommerce.service.CartStore;
+import com.ecommerce.util.Money;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * The user's cart. It is read in full when the panel is created or refreshed, and after
+ * that kept up to date from cart change events: a change redraws only its own line and
+ * the total is summed from the lines shown, so editing the cart reads nothing back from
+ * the database. A cart replaced as a whole, e.g. cleared, is read again.
+ */
 public class CartPanel extends JPanel {
     private final CartService cartService;
     private final User currentUser;
@@ -18,12 +28,31 @@ public class CartPanel extends JPanel {
     
     private JPanel cartItemsPanel;
     private JLabel totalLabel;
-    private List<CartItem> cartItems;
+    // Lines shown, by cart item id, in cart order
+    private final Map<Integer, CartRow> rows = new LinkedHashMap<>();
+    private final BackgroundLoader cartLoader;
+    private final CartStore.Listener cartListener;
 
     public CartPanel(CartService cartService, User currentUser, MainFrame parentFrame) {
         this.cartService = cartService;
         this.currentUser = currentUser;
         this.parentFrame = parentFrame;
+        this.cartLoader = new BackgroundLoader(this).cancelWhenHidden();
+        this.cartListener = new CartStore.Listener() {
+            @Override
+            public void lineChanged(CartStore.Change change) {
+                if (change.getUserId() == currentUser.getId()) {
+                    SwingUtilities.invokeLater(() -> applyChange(change.getItem()));
+                }
+            }
+            
+            @Override
+            public void cartReplaced(int userId) {
+                if (userId == currentUser.getId()) {
+                    SwingUtilities.invokeLater(() -> loadCartItems());
+                }
+            }
+        };
         
         setLayout(new BorderLayout(10, 10));
         setBorder(new EmptyBorder(10, 10, 10, 10));
@@ -54,7 +83,10 @@ public class CartPanel extends JPanel {
         
         JButton checkoutButton = new JButton("Proceed to Checkout");
         checkoutButton.addActionListener(e -> {
-            if (cartItems.isEmpty()) {
+            if (cartLoader.isLoading()) {
+                return;
+            }
+            if (rows.isEmpty()) {
                 JOptionPane.showMessageDialog(parentFrame, 
                         "Your cart is empty!", 
                         "Cannot Checkout", JOptionPane.WARNING_MESSAGE);
@@ -76,16 +108,68 @@ public class CartPanel extends JPanel {
 
     private void loadCartItems() {
         cartItemsPanel.removeAll();
-        cartItems = cartService.getUserCart(currentUser.getId());
+        JLabel loadingLabel = new JLabel("Loading cart...", SwingConstants.CENTER);
+        loadingLabel.setFont(new Font("Arial", Font.ITALIC, 14));
+        cartItemsPanel.add(loadingLabel);
+        cartItemsPanel.revalidate();
+        cartItemsPanel.repaint();
+        
+        cartLoader.load(() -> cartService.getUserCart(currentUser.getId()), this::displayCartItems);
+    }
+
+    private void displayCartItems(List<CartItem> items) {
+        cartItemsPanel.removeAll();
+        rows.clear();
+        
+        if (items.isEmpty()) {
+            showEmptyCart();
+        } else {
+            for (CartItem item : items) {
+                CartRow row = new CartRow(item);
+                rows.put(item.getId(), row);
+                cartItemsPanel.add(row.panel);
+            }
+        }
         
-        if (cartItems.isEmpty()) {
-            JLabel emptyCartLabel = new JLabel("Your cart is empty", SwingConstants.CENTER);
-            emptyCartLabel.setFont(new Font("Arial", Font.ITALIC, 14));
-            cartItemsPanel.add(emptyCartLabel);
+        updateTotal();
+        cartItemsPanel.revalidate();
+        cartItemsPanel.repaint();
+    }
+
+    private void showEmptyCart() {
+        JLabel emptyCartLabel = new JLabel("Your cart is empty", SwingConstants.CENTER);
+        emptyCartLabel.setFont(new Font("Arial", Font.ITALIC, 14));
+        cartItemsPanel.add(emptyCartLabel);
+    }
+
+    /**
+     * Show a line's new state: add, update or remove just its row.
+     * The cart may have been read before a change arriving while it loads, so it is read again.
+     */
+    private void applyChange(CartItem item) {
+        if (cartLoader.isLoading()) {
+            loadCartItems();
+            return;
+        }
+        CartRow row = rows.get(item.getId());
+        if (item.getQuantity() <= 0) {
+            if (row == null) {
+                return;
+            }
+            rows.remove(item.getId());
+            cartItemsPanel.remove(row.panel);
+            if (rows.isEmpty()) {
+                showEmptyCart();
+            }
+        } else if (row != null) {
+            row.setQuantity(item.getQuantity());
         } else {
-            for (CartItem item : cartItems) {
-                cartItemsPanel.add(createCartItemPanel(item));
+            if (rows.isEmpty()) {
+                cartItemsPanel.removeAll();
             }
+            row = new CartRow(item);
+            rows.put(item.getId(), row);
+            cartItemsPanel.add(row.panel);
         }
         
         updateTotal();
@@ -93,7 +177,51 @@ public class CartPanel extends JPanel {
         cartItemsPanel.repaint();
     }
 
-    private JPanel createCartItemPanel(CartItem item) {
+    /**
+     * The components of one cart line, kept so a change can update them in place.
+     * Edits to the line are written in the background, one at a time: its controls are
+     * disabled until the write finishes, so two writes can never land out of order.
+     */
+    private class CartRow {
+        private final CartItem item;
+        private final JPanel panel;
+        private final JLabel subtotalLabel;
+        private final JSpinner quantitySpinner;
+        private final JButton removeButton;
+        // Not cancelled when hidden; a write already sent should still be shown
+        private final BackgroundLoader writer;
+
+        CartRow(CartItem item) {
+            this.item = item;
+            this.subtotalLabel = new JLabel();
+            this.quantitySpinner = new JSpinner(
+                    new SpinnerNumberModel(item.getQuantity(), 1, Math.max(item.getQuantity(),
+                            item.getProduct().getStockQuantity()), 1));
+            this.removeButton = new JButton("Remove");
+            this.writer = new BackgroundLoader(CartPanel.this);
+            writer.setLoadingListener(writing -> {
+                quantitySpinner.setEnabled(!writing);
+                removeButton.setEnabled(!writing);
+            });
+            this.panel = createCartItemPanel(this);
+            showSubtotal();
+        }
+
+        void setQuantity(int quantity) {
+            item.setQuantity(quantity);
+            // Unchanged values do not fire the spinner's listener, so this does not write again
+            quantitySpinner.setValue(quantity);
+            showSubtotal();
+        }
+
+        private void showSubtotal() {
+            subtotalLabel.setText("Total: " + Money.format(item.getSubtotalCents()));
+        }
+    }
+
+    private JPanel createCartItemPanel(CartRow row) {
+        CartItem item = row.item;
+        JSpinner quantitySpinner = row.quantitySpinner;
         JPanel panel = new JPanel();
         panel.setLayout(new BorderLayout(10, 10));
         panel.setBorder(BorderFactory.createCompoundBorder(
@@ -108,47 +236,55 @@ public class CartPanel extends JPanel {
         nameLabel.setFont(new Font("Arial", Font.BOLD, 14));
         detailsPanel.add(nameLabel);
         
-        JLabel priceLabel = new JLabel(String.format("Price: $%.2f", item.getProduct().getPrice()));
+        JLabel priceLabel = new JLabel("Price: " + Money.format(item.getProduct().getPriceCents()));
         detailsPanel.add(priceLabel);
         
-        double itemTotal = item.getProduct().getPrice() * item.getQuantity();
-        JLabel totalLabel = new JLabel(String.format("Total: $%.2f", itemTotal));
-        detailsPanel.add(totalLabel);
+        detailsPanel.add(row.subtotalLabel);
         
         // Quantity panel
         JPanel quantityPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         JLabel quantityLabel = new JLabel("Quantity: ");
         
-        JSpinner quantitySpinner = new JSpinner(
-                new SpinnerNumberModel(item.getQuantity(), 1, item.getProduct().getStockQuantity(), 1));
-        
+        // Written in the background; the cart's change event then updates the row and the total.
+        // A line written straight to the database, because its cart was not in memory, has no
+        // event, so the row is also updated when the write succeeds; after an event that is a no-op
         quantitySpinner.addChangeListener(e -> {
             int newQuantity = (int) quantitySpinner.getValue();
-            if (cartService.updateCartItemQuantity(item.getId(), newQuantity)) {
-                itemTotal = item.getProduct().getPrice() * newQuantity;
-                totalLabel.setText(String.format("Total: $%.2f", itemTotal));
-                updateTotal();
+            if (newQuantity == item.getQuantity()) {
+                return;
             }
+            row.writer.load(() -> cartService.updateCartItemQuantity(item.getId(), newQuantity), updated -> {
+                if (updated) {
+                    applyChange(copyWithQuantity(item, newQuantity));
+                } else {
+                    quantitySpinner.setValue(item.getQuantity());
+                }
+            }, ex -> {
+                quantitySpinner.setValue(item.getQuantity());
+                JOptionPane.showMessageDialog(parentFrame, 
+                        "Error updating quantity: " + ex.getMessage(), 
+                        "Error", JOptionPane.ERROR_MESSAGE);
+            });
         });
         
-        JButton removeButton = new JButton("Remove");
-        removeButton.addActionListener(new ActionListener() {
+        row.removeButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (cartService.removeFromCart(item.getId())) {
-                    loadCartItems();
-                    parentFrame.updateCartCount();
-                } else {
-                    JOptionPane.showMessageDialog(parentFrame, 
-                            "Failed to remove item from cart!", 
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                row.writer.load(() -> cartService.removeFromCart(item.getId()), removed -> {
+                    if (removed) {
+                        applyChange(copyWithQuantity(item, 0));
+                    } else {
+                        JOptionPane.showMessageDialog(parentFrame, 
+                                "Failed to remove item from cart!", 
+                                "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
             }
         });
         
         quantityPanel.add(quantityLabel);
         quantityPanel.add(quantitySpinner);
-        quantityPanel.add(removeButton);
+        quantityPanel.add(row.removeButton);
         
         panel.add(detailsPanel, BorderLayout.CENTER);
         panel.add(quantityPanel, BorderLayout.EAST);
@@ -156,9 +292,35 @@ public class CartPanel extends JPanel {
         return panel;
     }
 
+    private static CartItem copyWithQuantity(CartItem item, int quantity) {
+        CartItem copy = new CartItem();
+        copy.setId(item.getId());
+        copy.setUserId(item.getUserId());
+        copy.setProduct(item.getProduct());
+        copy.setQuantity(quantity);
+        return copy;
+    }
+
+    // Summed from the lines shown, which are kept in step with the cart
     private void updateTotal() {
-        double total = cartService.calculateCartTotal(currentUser.getId());
-        totalLabel.setText(String.format("Total: $%.2f", total));
+        long total = 0;
+        for (CartRow row : rows.values()) {
+            total = Money.add(total, row.item.getSubtotalCents());
+        }
+        totalLabel.setText("Total: " + Money.format(total));
+    }
+
+    // Listen only while on screen, so a panel dropped on logout is not kept alive
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        cartService.addCartListener(cartListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        cartService.removeCartListener(cartListener);
+        super.removeNotify();
     }
 
     public void refresh() {
@@ -0,0 +1,165 @@
+package com.ecommerce.ui;
+
+import com.ecommerce.config.DatabaseConnection;
+import com.ecommerce.dao.QueryHandle;
+import com.ecommerce.model.Product;
+import com.ecommerce.service.ProductService;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Search-as-you-type for a text field. A search starts once typing pauses for the debounce
+ * delay, or at once on Enter, and supersedes the one before it: that one's query is
+ * cancelled and its results are dropped, so fast typing never leaves a queue of scans
+ * running on the database. Results of recent searches are kept for a short while, so going
+ * back to an earlier prefix, e.g. with backspace, needs no search at all.
+ * Must be used on the Event Dispatch Thread.
+ */
+public class IncrementalSearch {
+    private final JTextField field;
+    private final ProductService productService;
+    private final Consumer<List<Product>> onResults;
+    private final Runnable onCleared;
+    private final BackgroundLoader loader;
+    private final Timer debounceTimer;
+    private final Map<String, CachedResults> recent;
+    private final int cacheSize;
+    private final long cacheTtlMillis;
+
+    private QueryHandle running;
+    // Query whose results are shown; only set once its search has succeeded
+    private String lastQuery = "";
+    // Query of the search under way, if any
+    private String pendingQuery;
+
+    /**
+     * @param onResults Called with the results of the latest search
+     * @param onCleared Called when the field is emptied
+     */
+    public IncrementalSearch(JTextField field, ProductService productService,
+                             Consumer<List<Product>> onResults, Runnable onCleared) {
+        this.field = field;
+        this.productService = productService;
+        this.onResults = onResults;
+        this.onCleared = onCleared;
+        this.loader = new BackgroundLoader(field);
+
+        DatabaseConnection config = DatabaseConnection.getInstance();
+        this.cacheSize = Math.max(1, config.getIntProperty("search.cacheSize", 64));
+        this.cacheTtlMillis = config.getLongProperty("search.cacheTtlMillis", 30000);
+        this.recent = new LinkedHashMap<String, CachedResults>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResults> eldest) {
+                return size() > cacheSize;
+            }
+        };
+
+        this.debounceTimer = new Timer(config.getIntProperty("search.debounceMillis", 250), e -> searchNow());
+        debounceTimer.setRepeats(false);
+
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                debounceTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                debounceTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not alter the text
+            }
+        });
+        field.addActionListener(e -> searchNow());
+    }
+
+    /**
+     * Search for the field's current text without waiting for the debounce delay.
+     */
+    public void searchNow() {
+        debounceTimer.stop();
+        String query = normalize(field.getText());
+        if (loader.isLoading() ? query.equals(pendingQuery) : !query.isEmpty() && query.equals(lastQuery)) {
+            // Same text as the search already under way or shown
+            return;
+        }
+        cancelRunning();
+
+        if (query.isEmpty()) {
+            lastQuery = query;
+            onCleared.run();
+            return;
+        }
+
+        CachedResults cached = recent.get(query);
+        if (cached != null && System.currentTimeMillis() - cached.storedAt < cacheTtlMillis) {
+            lastQuery = query;
+            onResults.accept(cached.products);
+            return;
+        }
+
+        QueryHandle handle = new QueryHandle();
+        running = handle;
+        pendingQuery = query;
+        loader.load(() -> productService.searchProducts(query, handle), products -> {
+            running = null;
+            pendingQuery = null;
+            recent.put(query, new CachedResults(products));
+            lastQuery = query;
+            onResults.accept(products);
+        }, e -> {
+            // Nothing is cached and the last results stay up, so searching again retries
+            running = null;
+            pendingQuery = null;
+            JOptionPane.showMessageDialog(field,
+                    "Search failed: " + e.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    /**
+     * Stop any search in progress and forget the last query, e.g. when the catalog is
+     * reset to browsing; cached results are kept.
+     */
+    public void reset() {
+        debounceTimer.stop();
+        cancelRunning();
+        lastQuery = "";
+    }
+
+    private void cancelRunning() {
+        loader.cancel();
+        pendingQuery = null;
+        QueryHandle handle = running;
+        running = null;
+        if (handle != null) {
+            // Cancelling may need a round trip to the database, so not on the EDT
+            CompletableFuture.runAsync(handle::cancel);
+        }
+    }
+
+    private static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static class CachedResults {
+        private final List<Product> products;
+        private final long storedAt;
+
+        CachedResults(List<Product> products) {
+            this.products = products;
+            this.storedAt = System.currentTimeMillis();
+        }
+    }
+}
\ No newline at end of file
@@ -1,7 +1,6 @@
 package com.ecommerce.ui;
 
 import com.ecommerce.model.User;
-import com.ecommerce.service.AuthService;
 
 import javax.swing.*;
 import java.awt.*;
@@ -14,14 +13,18 @@ public class LoginPanel extends JPanel {
     private JButton loginButton;
     private JButton registerButton;
     private JLabel statusLabel;
-    private AuthService authService;
     private MainFrame parent;
+    private BackgroundLoader loginLoader;
     
     public LoginPanel(MainFrame parent) {
         this.parent = parent;
-        this.authService = new AuthService();
+        this.loginLoader = new BackgroundLoader(this);
         
         initializeUI();
+        loginLoader.setLoadingListener(loading -> {
+            loginButton.setEnabled(!loading);
+            registerButton.setEnabled(!loading);
+        });
     }
     
     private void initializeUI() {
@@ -89,17 +92,21 @@ public class LoginPanel extends JPanel {
             return;
         }
         
-        User user = authService.login(email, password);
-        
+        // Checking the password hash takes a noticeable moment, so keep it off the EDT
+        statusLabel.setText("Logging in...");
+        loginLoader.load(() -> parent.getAuthService().login(email, password), this::loginFinished);
+    }
+    
+    private void loginFinished(User user) {
         if (user != null) {
             statusLabel.setText("");
             JOptionPane.showMessageDialog(this, "Login successful!", "Success", JOptionPane.INFORMATION_MESSAGE);
             
             // Navigate to appropriate page based on user role
             if (user.isAdmin()) {
-                parent.showAdminDashboard();
+                parent.showAdminDashboardPanel();
             } else {
-                parent.showProductList();
+                parent.showProductListPanel();
             }
         } else {
             statusLabel.setText("Invalid email or password");
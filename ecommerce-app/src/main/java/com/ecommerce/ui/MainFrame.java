@@ -1,23 +1,45 @@
 package com.ecommerce.ui;
 
+import com.ecommerce.config.DatabaseConnection;
 import com.ecommerce.service.AuthService;
+import com.ecommerce.service.CartService;
+import com.ecommerce.service.CartStore;
+import com.ecommerce.service.CheckoutBatcher;
+import com.ecommerce.service.InventoryReservationService;
+import com.ecommerce.service.OrderService;
+import com.ecommerce.service.ProductService;
+import com.ecommerce.service.SessionRegistry;
+import com.ecommerce.util.PasswordHasher;
+import com.ecommerce.util.StartupTimer;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 
+/**
+ * The application window. Only the login form is built up front; every other panel, and the
+ * services behind it, is created the first time it is shown, so the window appears without
+ * touching the database and nothing is loaded until after login.
+ */
 public class MainFrame extends JFrame {
     private CardLayout cardLayout;
     private JPanel contentPanel;
     
-    // Panels
+    // Services, created on first use; the getters may be called from loader threads
+    private AuthService authService;
+    private ProductService productService;
+    private CartService cartService;
+    private OrderService orderService;
+    
+    // Panels, created on first use; null until then
     private LoginPanel loginPanel;
     private RegisterPanel registerPanel;
     private ProductListPanel productListPanel;
     private CartPanel cartPanel;
     private OrderSummaryPanel orderSummaryPanel;
     private AdminDashboardPanel adminDashboardPanel;
+    private ProductManagementPanel productManagementPanel;
     
     // Panel identifiers
     private static final String LOGIN_PANEL = "LOGIN";
@@ -26,10 +48,11 @@ public class MainFrame extends JFrame {
     private static final String CART_PANEL = "CART";
     private static final String ORDER_SUMMARY_PANEL = "ORDER_SUMMARY";
     private static final String ADMIN_DASHBOARD_PANEL = "ADMIN_DASHBOARD";
+    private static final String PRODUCT_MANAGEMENT_PANEL = "PRODUCT_MANAGEMENT";
     
     public MainFrame() {
         initializeFrame();
-        initializePanels();
+        initializeLoginPanel();
     }
     
     private void initializeFrame() {
@@ -45,35 +68,64 @@ public class MainFrame extends JFrame {
         
         // Add window close event listener
         addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                StartupTimer.mark("first frame");
+                // Queued behind the first paint, so this is when the form takes input
+                SwingUtilities.invokeLater(() -> StartupTimer.mark("login ready"));
+            }
+            
             @Override
             public void windowClosing(WindowEvent e) {
                 // Clean up resources if needed
                 System.out.println("Application closing");
+                CheckoutBatcher.shutdown();
+                SessionRegistry.shutdown();
+                CartStore.shutdown();
+                InventoryReservationService.shutdown();
+                PasswordHasher.shutdown();
+                ThumbnailLoader.shutdown();
+                DatabaseConnection.shutdown();
             }
         });
     }
     
-    private void initializePanels() {
-        // Initialize panels
+    private void initializeLoginPanel() {
+        // The login panel is shown initially; it needs no services until a login is submitted
         loginPanel = new LoginPanel(this);
-        registerPanel = new RegisterPanel(this);
-        productListPanel = new ProductListPanel(this);
-        cartPanel = new CartPanel(this);
-        orderSummaryPanel = new OrderSummaryPanel(this);
-        adminDashboardPanel = new AdminDashboardPanel(this);
-        
-        // Add panels to the content panel with identifiers
         contentPanel.add(loginPanel, LOGIN_PANEL);
-        contentPanel.add(registerPanel, REGISTER_PANEL);
-        contentPanel.add(productListPanel, PRODUCT_LIST_PANEL);
-        contentPanel.add(cartPanel, CART_PANEL);
-        contentPanel.add(orderSummaryPanel, ORDER_SUMMARY_PANEL);
-        contentPanel.add(adminDashboardPanel, ADMIN_DASHBOARD_PANEL);
-        
-        // Show the login panel initially
         cardLayout.show(contentPanel, LOGIN_PANEL);
     }
     
+    // Services
+    public synchronized AuthService getAuthService() {
+        if (authService == null) {
+            authService = new AuthService();
+        }
+        return authService;
+    }
+    
+    public synchronized ProductService getProductService() {
+        if (productService == null) {
+            productService = new ProductService();
+        }
+        return productService;
+    }
+    
+    public synchronized CartService getCartService() {
+        if (cartService == null) {
+            cartService = new CartService();
+        }
+        return cartService;
+    }
+    
+    public synchronized OrderService getOrderService() {
+        if (orderService == null) {
+            orderService = new OrderService();
+        }
+        return orderService;
+    }
+    
     // Navigation methods
     public void showLoginPanel() {
         loginPanel.clearFields();
@@ -81,33 +133,87 @@ public class MainFrame extends JFrame {
     }
     
     public void showRegisterPanel() {
-        registerPanel.clearFields();
+        if (registerPanel == null) {
+            registerPanel = new RegisterPanel(this);
+            contentPanel.add(registerPanel, REGISTER_PANEL);
+        } else {
+            registerPanel.clearFields();
+        }
         cardLayout.show(contentPanel, REGISTER_PANEL);
     }
     
-    public void showProductList() {
-        productListPanel.refreshProducts();
+    // A newly created panel loads its data itself, so it is only refreshed when shown again
+    public void showProductListPanel() {
+        if (productListPanel == null) {
+            productListPanel = new ProductListPanel(getProductService(), getCartService(),
+                    AuthService.getCurrentUser(), this);
+            contentPanel.add(productListPanel, PRODUCT_LIST_PANEL);
+        } else {
+            productListPanel.refresh();
+        }
         cardLayout.show(contentPanel, PRODUCT_LIST_PANEL);
     }
     
-    public void showCart() {
-        cartPanel.refreshCart();
+    public void showCartPanel() {
+        if (cartPanel == null) {
+            cartPanel = new CartPanel(getCartService(), AuthService.getCurrentUser(), this);
+            contentPanel.add(cartPanel, CART_PANEL);
+        } else {
+            cartPanel.refresh();
+        }
         cardLayout.show(contentPanel, CART_PANEL);
     }
     
-    public void showOrderSummary() {
-        orderSummaryPanel.refreshOrderSummary();
+    public void showOrderSummaryPanel() {
+        if (orderSummaryPanel == null) {
+            orderSummaryPanel = new OrderSummaryPanel(this, AuthService.getCurrentUser(),
+                    getCartService(), getOrderService());
+            contentPanel.add(orderSummaryPanel, ORDER_SUMMARY_PANEL);
+        } else {
+            orderSummaryPanel.refresh();
+        }
         cardLayout.show(contentPanel, ORDER_SUMMARY_PANEL);
     }
     
-    public void showAdminDashboard() {
-        adminDashboardPanel.refreshDashboard();
+    // The dashboard only holds buttons, so there is nothing to refresh
+    public void showAdminDashboardPanel() {
+        if (adminDashboardPanel == null) {
+            adminDashboardPanel = new AdminDashboardPanel(this);
+            contentPanel.add(adminDashboardPanel, ADMIN_DASHBOARD_PANEL);
+        }
         cardLayout.show(contentPanel, ADMIN_DASHBOARD_PANEL);
     }
     
+    public void showProductManagementPanel() {
+        if (productManagementPanel == null) {
+            productManagementPanel = new ProductManagementPanel(this);
+            contentPanel.add(productManagementPanel, PRODUCT_MANAGEMENT_PANEL);
+        } else {
+            productManagementPanel.refresh();
+        }
+        cardLayout.show(contentPanel, PRODUCT_MANAGEMENT_PANEL);
+    }
+    
     public void logout() {
-        AuthService authService = new AuthService();
-        authService.logout();
+        getAuthService().logout();
         showLoginPanel();
+        
+        // The panels belong to the user who just left; the next one gets new ones
+        removePanel(productListPanel);
+        removePanel(cartPanel);
+        removePanel(orderSummaryPanel);
+        removePanel(adminDashboardPanel);
+        removePanel(productManagementPanel);
+        productListPanel = null;
+        cartPanel = null;
+        orderSummaryPanel = null;
+        adminDashboardPanel = null;
+        productManagementPanel = null;
+    }
+    
+    private void removePanel(JPanel panel) {
+        if (panel != null) {
+            contentPanel.remove(panel);
+        }
     }
 }
\ No newline at end of file
@@ -1,10 +1,10 @@
 package com.ecommerce.ui;
 
 import com.ecommerce.model.CartItem;
-import com.ecommerce.model.Order;
 import com.ecommerce.model.User;
 import com.ecommerce.service.CartService;
 import com.ecommerce.service.OrderService;
+import com.ecommerce.util.Money;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -12,6 +12,7 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -30,8 +31,10 @@ public class OrderSummaryPanel extends JPanel {
     private JButton backToCartButton;
     private JButton cancelButton;
     
-    private List<CartItem> cartItems;
-    private double totalAmount;
+    private List<CartItem> cartItems = new ArrayList<>();
+    private long totalAmountCents;
+    private BackgroundLoader cartLoader;
+    private BackgroundLoader orderLoader;
     
     private DecimalFormat currencyFormat = new DecimalFormat("$#,##0.00");
 
@@ -48,34 +51,48 @@ public class OrderSummaryPanel extends JPanel {
         this.currentUser = currentUser;
         this.cartService = cartService;
         this.orderService = orderService;
+        this.cartLoader = new BackgroundLoader(this).cancelWhenHidden();
+        // Not cancelled when hidden: a placed order must still be reported
+        this.orderLoader = new BackgroundLoader(this);
+        orderLoader.setLoadingListener(loading -> confirmOrderButton.setEnabled(!loading));
         
-        loadCartItems();
         initializeComponents();
         setupLayout();
         setupListeners();
+        loadCartItems();
+    }
+    
+    /**
+     * Reload the cart, e.g. when the panel is shown again
+     */
+    public void refresh() {
+        loadCartItems();
     }
     
     /**
-     * Load cart items from the database
+     * Load cart items from the database in the background
      */
     private void loadCartItems() {
-        try {
-            cartItems = cartService.getCartItems(currentUser.getId());
+        confirmOrderButton.setEnabled(false);
+        totalAmountLabel.setText("Loading...");
+        cartLoader.load(() -> cartService.getUserCart(currentUser.getId()), items -> {
+            cartItems = items;
             calculateTotal();
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
+            populateTable();
+            totalAmountLabel.setText("Total: " + formatCents(totalAmountCents));
+            confirmOrderButton.setEnabled(!orderLoader.isLoading());
+        }, e -> JOptionPane.showMessageDialog(this, 
                 "Error loading cart items: " + e.getMessage(), 
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+                "Error", JOptionPane.ERROR_MESSAGE));
     }
     
     /**
      * Calculate the total amount for all items in cart
      */
     private void calculateTotal() {
-        totalAmount = 0.0;
+        totalAmountCents = 0;
         for (CartItem item : cartItems) {
-            totalAmount += item.getProduct().getPrice() * item.getQuantity();
+            totalAmountCents = Money.add(totalAmountCents, item.getSubtotalCents());
         }
     }
 
@@ -104,7 +121,7 @@ public class OrderSummaryPanel extends JPanel {
         JLabel headerLabel = new JLabel("Order Summary", JLabel.CENTER);
         headerLabel.setFont(new Font("Arial", Font.BOLD, 24));
         
-        totalAmountLabel = new JLabel("Total: " + currencyFormat.format(totalAmount), JLabel.RIGHT);
+        totalAmountLabel = new JLabel("Total: " + formatCents(totalAmountCents), JLabel.RIGHT);
         totalAmountLabel.setFont(new Font("Arial", Font.BOLD, 18));
         
         confirmOrderButton = new JButton("Confirm Order");
@@ -121,16 +138,22 @@ public class OrderSummaryPanel extends JPanel {
         
         // Add rows for each cart item
         for (CartItem item : cartItems) {
-            double subtotal = item.getProduct().getPrice() * item.getQuantity();
             tableModel.addRow(new Object[]{
                 item.getProduct().getName(),
-                currencyFormat.format(item.getProduct().getPrice()),
+                formatCents(item.getProduct().getPriceCents()),
                 item.getQuantity(),
-                currencyFormat.format(subtotal)
+                formatCents(item.getSubtotalCents())
             });
         }
     }
 
+    /**
+     * Format an amount in cents with thousands separators, e.g. "$1,234.50"
+     */
+    private String formatCents(long cents) {
+        return currencyFormat.format(Money.toBigDecimal(cents));
+    }
+
     /**
      * Set up the panel layout
      */
@@ -178,7 +201,7 @@ public class OrderSummaryPanel extends JPanel {
         backToCartButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                mainFrame.showPanel(new CartPanel(mainFrame, currentUser, cartService));
+                mainFrame.showCartPanel();
             }
         });
         
@@ -190,7 +213,7 @@ public class OrderSummaryPanel extends JPanel {
                     "Confirm Cancel", JOptionPane.YES_NO_OPTION);
                 
                 if (confirm == JOptionPane.YES_OPTION) {
-                    mainFrame.showPanel(new ProductListPanel(mainFrame, currentUser));
+                    mainFrame.showProductListPanel();
                 }
             }
         });
@@ -201,6 +224,11 @@ public class OrderSummaryPanel extends JPanel {
      */
     private void processOrder() {
         try {
+            // Nothing to confirm until the cart has loaded, or while an order is being placed
+            if (cartLoader.isLoading() || orderLoader.isLoading()) {
+                return;
+            }
+            
             // Check if cart is empty
             if (cartItems.isEmpty()) {
                 JOptionPane.showMessageDialog(this,
@@ -209,24 +237,40 @@ public class OrderSummaryPanel extends JPanel {
                 return;
             }
             
+            // Ask where the order should be shipped
+            String shippingAddress = JOptionPane.showInputDialog(this,
+                "Shipping address:", "Confirm Order", JOptionPane.QUESTION_MESSAGE);
+            if (shippingAddress == null || shippingAddress.trim().isEmpty()) {
+                return;
+            }
+            
             // Show confirmation dialog
             int confirm = JOptionPane.showConfirmDialog(this,
                 "Are you sure you want to place this order for " + 
-                currencyFormat.format(totalAmount) + "?",
+                formatCents(totalAmountCents) + "?",
                 "Confirm Order", JOptionPane.YES_NO_OPTION);
             
             if (confirm == JOptionPane.YES_OPTION) {
-                // Create the order using the order service
-                Order order = orderService.createOrder(currentUser.getId(), cartItems);
-                
-                // Show success message
-                JOptionPane.showMessageDialog(this,
-                    "Order placed successfully. Order ID: " + order.getId(),
-                    "Order Confirmed", JOptionPane.INFORMATION_MESSAGE);
-                
-                // Clear cart and go back to product list
-                cartService.clearCart(currentUser.getId());
-                mainFrame.showPanel(new ProductListPanel(mainFrame, currentUser));
+                // Create the order in the background; placing it also clears the cart
+                String address = shippingAddress.trim();
+                orderLoader.load(() -> orderService.createOrder(currentUser, address), orderId -> {
+                    if (orderId < 0) {
+                        JOptionPane.showMessageDialog(this,
+                            "The order could not be placed. Please check your cart and try again.",
+                            "Order Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    
+                    // Show success message
+                    JOptionPane.showMessageDialog(this,
+                        "Order placed successfully. Order ID: " + orderId,
+                        "Order Confirmed", JOptionPane.INFORMATION_MESSAGE);
+                    
+                    // Go back to product list
+                    mainFrame.showProductListPanel();
+                }, e -> JOptionPane.showMessageDialog(this,
+                    "Error placing order: " + e.getMessage(),
+                    "Order Error", JOptionPane.ERROR_MESSAGE));
             }
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this,
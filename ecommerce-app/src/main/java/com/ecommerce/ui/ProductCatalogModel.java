@@ -0,0 +1,161 @@
+package com.ecommerce.ui;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.model.ProductCursor;
+import com.ecommerce.model.ProductPage;
+import com.ecommerce.service.ProductService;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Table model for the customer catalog. Browsing reads the catalog a keyset page at a time
+ * as the user scrolls towards the end, so only the rows seen so far are ever loaded;
+ * a search shows its whole result list. The table paints only the visible rows with one
+ * shared renderer per column, so no Swing components are created per product.
+ * The image column holds each product's image location; the panel's renderer turns it into
+ * a thumbnail.
+ * Pages are fetched off the Event Dispatch Thread: nextPageTask runs in the background and
+ * appendPage adds its result; everything else is called on the Event Dispatch Thread.
+ */
+public class ProductCatalogModel extends AbstractTableModel {
+    public static final int IMAGE_COLUMN = 0;
+    public static final int NAME_COLUMN = 1;
+    public static final int CATEGORY_COLUMN = 2;
+    public static final int PRICE_COLUMN = 3;
+    public static final int STOCK_COLUMN = 4;
+
+    private static final String[] COLUMN_NAMES = {"", "Name", "Category", "Price", "In Stock"};
+
+    private final ProductService productService;
+    private final List<Product> products = new ArrayList<>();
+
+    // Browsing state; a search sets hasMore to false so nothing more is fetched
+    private int categoryId;
+    private ProductCursor lastCursor;
+    private boolean hasMore;
+
+    public ProductCatalogModel(ProductService productService) {
+        this.productService = productService;
+    }
+
+    /**
+     * Start browsing a category from the top, or every category if categoryId is 0.
+     * The rows are empty until the first page is appended.
+     */
+    public void browse(int categoryId) {
+        this.categoryId = categoryId;
+        this.lastCursor = null;
+        this.hasMore = true;
+        clear();
+    }
+
+    /**
+     * Show a fixed list of products, e.g. search results.
+     */
+    public void show(List<Product> results) {
+        this.hasMore = false;
+        this.lastCursor = null;
+        clear();
+        if (!results.isEmpty()) {
+            products.addAll(results);
+            fireTableRowsInserted(0, results.size() - 1);
+        }
+    }
+
+    /**
+     * Whether another page should be loaded to keep a page beyond the given row, normally
+     * the last visible one, ready.
+     */
+    public boolean needsMore(int row) {
+        return hasMore && row + productService.getDefaultPageSize() >= products.size();
+    }
+
+    /**
+     * A task reading the page after the rows loaded so far, to run in the background.
+     */
+    public Callable<ProductPage> nextPageTask() {
+        int pageCategoryId = categoryId;
+        ProductCursor cursor = lastCursor;
+        return () -> productService.getProductPage(pageCategoryId, cursor, true);
+    }
+
+    public void appendPage(ProductPage page) {
+        List<Product> loaded = page.getProducts();
+        hasMore = page.hasNext() && !loaded.isEmpty();
+        if (loaded.isEmpty()) {
+            return;
+        }
+        lastCursor = page.getLastCursor();
+        int first = products.size();
+        products.addAll(loaded);
+        fireTableRowsInserted(first, products.size() - 1);
+    }
+
+    private void clear() {
+        if (!products.isEmpty()) {
+            int last = products.size() - 1;
+            products.clear();
+            fireTableRowsDeleted(0, last);
+        }
+    }
+
+    public Product getProductAt(int row) {
+        return products.get(row);
+    }
+
+    /**
+     * Whether more of the catalog is still to be loaded.
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    @Override
+    public int getRowCount() {
+        return products.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case PRICE_COLUMN:
+                return Long.class;
+            case STOCK_COLUMN:
+                return Integer.class;
+            default:
+                return String.class;
+        }
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Product product = products.get(row);
+        switch (column) {
+            case IMAGE_COLUMN:
+                return product.getImagePath();
+            case NAME_COLUMN:
+                return product.getName();
+            case CATEGORY_COLUMN:
+                return product.getCategory() != null ? product.getCategory().getName() : "Uncategorized";
+            case PRICE_COLUMN:
+                return product.getPriceCents();
+            case STOCK_COLUMN:
+                return product.getStockQuantity();
+            default:
+                return null;
+        }
+    }
+}
\ No newline at end of file
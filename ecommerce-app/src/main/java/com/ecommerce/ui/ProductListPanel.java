@@ -4,13 +4,15 @@ import com.ecommerce.model.Category;
 import com.ecommerce.model.Product;
 import com.ecommerce.model.User;
 import com.ecommerce.service.CartService;
+import com.ecommerce.service.CartStore;
 import com.ecommerce.service.ProductService;
+import com.ecommerce.util.Money;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableColumn;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.util.List;
 
 public class ProductListPanel extends JPanel {
@@ -19,10 +21,30 @@ public class ProductListPanel extends JPanel {
     private final User currentUser;
     private final MainFrame parentFrame;
     
-    private JPanel productsPanel;
+    private static final String TABLE_CARD = "table";
+    private static final String EMPTY_CARD = "empty";
+    private static final String LOADING_CARD = "loading";
+    
+    private ProductCatalogModel catalogModel;
+    private JTable productsTable;
+    private JScrollPane scrollPane;
+    private CardLayout centerLayout;
+    private JPanel centerPanel;
     private JComboBox<Category> categoryComboBox;
     private JTextField searchField;
+    private IncrementalSearch incrementalSearch;
     private JLabel cartCountLabel;
+    private JLabel selectedProductLabel;
+    private JSpinner quantitySpinner;
+    private JButton addToCartButton;
+    
+    // Catalog pages and searches share a loader, so a new one supersedes any still running
+    private BackgroundLoader catalogLoader;
+    private BackgroundLoader categoryLoader;
+    private BackgroundLoader cartCountLoader;
+    private BackgroundLoader addToCartLoader;
+    // Keeps the cart count current without querying it after every change
+    private final CartStore.Listener cartListener;
 
     public ProductListPanel(ProductService productService, CartService cartService, User currentUser, MainFrame parentFrame) {
         this.productService = productService;
@@ -33,15 +55,34 @@ public class ProductListPanel extends JPanel {
         setLayout(new BorderLayout(10, 10));
         setBorder(new EmptyBorder(10, 10, 10, 10));
         
+        catalogLoader = new BackgroundLoader(this).cancelWhenHidden();
+        categoryLoader = new BackgroundLoader(this);
+        cartCountLoader = new BackgroundLoader(this).cancelWhenHidden();
+        addToCartLoader = new BackgroundLoader(this);
+        cartListener = new CartStore.Listener() {
+            @Override
+            public void lineChanged(CartStore.Change change) {
+                if (change.getUserId() == currentUser.getId()) {
+                    SwingUtilities.invokeLater(() -> cartCountChanged(change.getItemCount()));
+                }
+            }
+            
+            @Override
+            public void cartReplaced(int userId) {
+                if (userId == currentUser.getId()) {
+                    SwingUtilities.invokeLater(() -> updateCartCount());
+                }
+            }
+        };
+        
         // Top panel with search, filter, and cart
         initializeTopPanel();
         
-        // Center panel with product list
-        productsPanel = new JPanel();
-        productsPanel.setLayout(new BoxLayout(productsPanel, BoxLayout.Y_AXIS));
-        JScrollPane scrollPane = new JScrollPane(productsPanel);
-        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
-        add(scrollPane, BorderLayout.CENTER);
+        // Center panel with product table
+        initializeProductTable();
+        
+        // Bottom panel acting on the selected product
+        initializeActionPanel();
         
         // Load products
         loadProducts();
@@ -55,14 +96,9 @@ public class ProductListPanel extends JPanel {
         JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         searchField = new JTextField(20);
         JButton searchButton = new JButton("Search");
-        searchButton.addActionListener(e -> {
-            String keyword = searchField.getText().trim();
-            if (!keyword.isEmpty()) {
-                loadProductsBySearch(keyword);
-            } else {
-                loadProducts();
-            }
-        });
+        // Searches as the user types; the button and Enter search without waiting
+        incrementalSearch = new IncrementalSearch(searchField, productService, this::showSearchResults, this::loadProducts);
+        searchButton.addActionListener(e -> incrementalSearch.searchNow());
         searchPanel.add(new JLabel("Search: "));
         searchPanel.add(searchField);
         searchPanel.add(searchButton);
@@ -78,10 +114,11 @@ public class ProductListPanel extends JPanel {
         categoryComboBox.addItem(allCategory);
         
         // Load categories
-        List<Category> categories = productService.getAllCategories();
-        for (Category category : categories) {
-            categoryComboBox.addItem(category);
-        }
+        categoryLoader.load(productService::getAllCategories, categories -> {
+            for (Category category : categories) {
+                categoryComboBox.addItem(category);
+            }
+        });
         
         categoryComboBox.addActionListener(e -> {
             Category selectedCategory = (Category) categoryComboBox.getSelectedItem();
@@ -112,101 +149,208 @@ public class ProductListPanel extends JPanel {
         add(topPanel, BorderLayout.NORTH);
     }
 
-    private void loadProducts() {
-        productsPanel.removeAll();
-        List<Product> products = productService.getAllProducts();
-        displayProducts(products);
-    }
-
-    private void loadProductsByCategory(int categoryId) {
-        productsPanel.removeAll();
-        List<Product> products = productService.getProductsByCategory(categoryId);
-        displayProducts(products);
-    }
-
-    private void loadProductsBySearch(String keyword) {
-        productsPanel.removeAll();
-        List<Product> products = productService.searchProducts(keyword);
-        displayProducts(products);
-    }
-
-    private void displayProducts(List<Product> products) {
-        if (products.isEmpty()) {
-            JLabel noProductsLabel = new JLabel("No products found", SwingConstants.CENTER);
-            noProductsLabel.setFont(new Font("Arial", Font.BOLD, 16));
-            productsPanel.add(noProductsLabel);
-        } else {
-            for (Product product : products) {
-                productsPanel.add(createProductPanel(product));
-            }
-        }
-        
-        productsPanel.revalidate();
-        productsPanel.repaint();
-    }
-
-    private JPanel createProductPanel(Product product) {
-        JPanel panel = new JPanel();
-        panel.setLayout(new BorderLayout(10, 10));
-        panel.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(Color.LIGHT_GRAY, 1),
-                BorderFactory.createEmptyBorder(10, 10, 10, 10)));
-        
-        // Product details
-        JPanel detailsPanel = new JPanel();
-        detailsPanel.setLayout(new BoxLayout(detailsPanel, BoxLayout.Y_AXIS));
+    private void initializeProductTable() {
+        catalogModel = new ProductCatalogModel(productService);
+        productsTable = new JTable(catalogModel);
+        productsTable.setRowHeight(28);
+        productsTable.setFillsViewportHeight(true);
+        productsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        productsTable.getTableHeader().setReorderingAllowed(false);
+        productsTable.getColumnModel().getColumn(ProductCatalogModel.NAME_COLUMN).setPreferredWidth(300);
         
-        JLabel nameLabel = new JLabel(product.getName());
-        nameLabel.setFont(new Font("Arial", Font.BOLD, 14));
-        detailsPanel.add(nameLabel);
+        // One renderer instance paints every price cell
+        DefaultTableCellRenderer priceRenderer = new DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                setText(value == null ? "" : Money.format((Long) value));
+            }
+        };
+        priceRenderer.setHorizontalAlignment(SwingConstants.RIGHT);
+        productsTable.getColumnModel().getColumn(ProductCatalogModel.PRICE_COLUMN).setCellRenderer(priceRenderer);
+        // Last, as hiding the image column shifts the view's column indexes
+        initializeThumbnails();
         
-        JLabel priceLabel = new JLabel(String.format("Price: $%.2f", product.getPrice()));
-        detailsPanel.add(priceLabel);
+        productsTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                updateSelection();
+            }
+        });
         
-        String categoryName = product.getCategory() != null ? product.getCategory().getName() : "Uncategorized";
-        JLabel categoryLabel = new JLabel("Category: " + categoryName);
-        detailsPanel.add(categoryLabel);
+        scrollPane = new JScrollPane(productsTable);
+        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
+        // Fetch the next page once the user scrolls near the end of what is loaded
+        scrollPane.getViewport().addChangeListener(e -> loadVisibleRows());
         
-        JLabel stockLabel = new JLabel("In Stock: " + product.getStockQuantity());
-        detailsPanel.add(stockLabel);
+        JLabel noProductsLabel = new JLabel("No products found", SwingConstants.CENTER);
+        noProductsLabel.setFont(new Font("Arial", Font.BOLD, 16));
         
-        // Add to cart button
-        JPanel actionPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-        JSpinner quantitySpinner = new JSpinner(new SpinnerNumberModel(1, 1, product.getStockQuantity(), 1));
-        JButton addToCartButton = new JButton("Add to Cart");
+        centerLayout = new CardLayout();
+        centerPanel = new JPanel(centerLayout);
+        centerPanel.add(scrollPane, TABLE_CARD);
+        centerPanel.add(noProductsLabel, EMPTY_CARD);
+        centerPanel.add(new JLabel("Loading products...", SwingConstants.CENTER), LOADING_CARD);
+        add(centerPanel, BorderLayout.CENTER);
+    }
+
+    private void initializeThumbnails() {
+        if (!ThumbnailLoader.isEnabled()) {
+            productsTable.removeColumn(productsTable.getColumnModel().getColumn(ProductCatalogModel.IMAGE_COLUMN));
+            return;
+        }
+        ThumbnailLoader thumbnails = ThumbnailLoader.getInstance();
+        int cellSize = thumbnails.getSize() + 4;
+        productsTable.setRowHeight(Math.max(productsTable.getRowHeight(), cellSize));
+        TableColumn imageColumn = productsTable.getColumnModel().getColumn(ProductCatalogModel.IMAGE_COLUMN);
+        imageColumn.setMinWidth(cellSize);
+        imageColumn.setMaxWidth(cellSize);
         
-        addToCartButton.addActionListener(new ActionListener() {
+        // Paints whatever thumbnail is in memory; a missing one is loaded in the background
+        // and its row repainted when it arrives, if the row still shows the same image
+        imageColumn.setCellRenderer(new DefaultTableCellRenderer() {
             @Override
-            public void actionPerformed(ActionEvent e) {
-                int quantity = (int) quantitySpinner.getValue();
-                if (cartService.addToCart(currentUser.getId(), product.getId(), quantity)) {
-                    JOptionPane.showMessageDialog(parentFrame, 
-                            quantity + " " + product.getName() + " added to cart!", 
-                            "Success", JOptionPane.INFORMATION_MESSAGE);
-                    updateCartCount();
-                } else {
-                    JOptionPane.showMessageDialog(parentFrame, 
-                            "Failed to add product to cart!", 
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                }
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                           boolean hasFocus, int row, int column) {
+                super.getTableCellRendererComponent(table, null, isSelected, hasFocus, row, column);
+                setHorizontalAlignment(SwingConstants.CENTER);
+                String location = (String) value;
+                int modelRow = table.convertRowIndexToModel(row);
+                setIcon(thumbnails.get(location, () -> {
+                    if (modelRow < catalogModel.getRowCount()
+                            && location.equals(catalogModel.getValueAt(modelRow, ProductCatalogModel.IMAGE_COLUMN))) {
+                        catalogModel.fireTableCellUpdated(modelRow, ProductCatalogModel.IMAGE_COLUMN);
+                    }
+                }));
+                return this;
             }
         });
+    }
+
+    private void initializeActionPanel() {
+        JPanel actionPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        selectedProductLabel = new JLabel("Select a product");
+        quantitySpinner = new JSpinner(new SpinnerNumberModel(1, 1, 1, 1));
+        addToCartButton = new JButton("Add to Cart");
+        addToCartButton.addActionListener(e -> addSelectedToCart());
+        addToCartLoader.setLoadingListener(loading -> updateSelection());
         
+        actionPanel.add(selectedProductLabel);
         actionPanel.add(new JLabel("Qty: "));
         actionPanel.add(quantitySpinner);
         actionPanel.add(addToCartButton);
+        add(actionPanel, BorderLayout.SOUTH);
         
-        panel.add(detailsPanel, BorderLayout.CENTER);
-        panel.add(actionPanel, BorderLayout.SOUTH);
-        
-        return panel;
+        updateSelection();
+    }
+
+    private void loadProducts() {
+        loadProductsByCategory(0);
+    }
+
+    private void loadProductsByCategory(int categoryId) {
+        incrementalSearch.reset();
+        catalogModel.browse(categoryId);
+        centerLayout.show(centerPanel, LOADING_CARD);
+        catalogLoader.load(catalogModel.nextPageTask(), page -> {
+            catalogModel.appendPage(page);
+            showProducts();
+        });
+    }
+
+    private void showSearchResults(List<Product> results) {
+        // Results replace whatever page of the catalog was still loading
+        catalogLoader.cancel();
+        catalogModel.show(results);
+        showProducts();
+    }
+
+    private void showProducts() {
+        centerLayout.show(centerPanel, catalogModel.getRowCount() == 0 ? EMPTY_CARD : TABLE_CARD);
+        productsTable.scrollRectToVisible(new Rectangle(0, 0, 1, 1));
+        loadVisibleRows();
+    }
+
+    private void loadVisibleRows() {
+        // A page already on its way will check again when it arrives
+        if (catalogLoader.isLoading() || !catalogModel.hasMore()) {
+            return;
+        }
+        Rectangle view = scrollPane.getViewport().getViewRect();
+        int lastVisible = productsTable.rowAtPoint(new Point(0, view.y + view.height - 1));
+        if (catalogModel.needsMore(lastVisible < 0 ? catalogModel.getRowCount() - 1 : lastVisible)) {
+            catalogLoader.load(catalogModel.nextPageTask(), page -> {
+                catalogModel.appendPage(page);
+                loadVisibleRows();
+            });
+        }
     }
 
+    private Product getSelectedProduct() {
+        int row = productsTable.getSelectedRow();
+        return row < 0 ? null : catalogModel.getProductAt(productsTable.convertRowIndexToModel(row));
+    }
+
+    private void updateSelection() {
+        Product product = getSelectedProduct();
+        boolean inStock = product != null && product.getStockQuantity() > 0;
+        selectedProductLabel.setText(product == null ? "Select a product" : product.getName());
+        quantitySpinner.setModel(new SpinnerNumberModel(1, 1, inStock ? product.getStockQuantity() : 1, 1));
+        quantitySpinner.setEnabled(inStock);
+        addToCartButton.setEnabled(inStock && !addToCartLoader.isLoading());
+    }
+
+    private void addSelectedToCart() {
+        Product product = getSelectedProduct();
+        if (product == null) {
+            return;
+        }
+        int quantity = (int) quantitySpinner.getValue();
+        addToCartLoader.load(() -> cartService.addToCart(currentUser.getId(), product.getId(), quantity), added -> {
+            if (added) {
+                JOptionPane.showMessageDialog(parentFrame, 
+                        quantity + " " + product.getName() + " added to cart!", 
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(parentFrame, 
+                        "Failed to add product to cart!", 
+                        "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
+
+    /**
+     * Read the cart count again, e.g. when the panel is shown. Changes in between arrive as
+     * cart events and update the count directly.
+     */
     public void updateCartCount() {
-        int count = cartService.getCartItemCount(currentUser.getId());
+        cartCountLoader.load(() -> cartService.getCartItemCount(currentUser.getId()), this::showCartCount);
+    }
+
+    private void showCartCount(int count) {
         cartCountLabel.setText("Cart: " + count + " items");
     }
 
+    private void cartCountChanged(int count) {
+        if (cartCountLoader.isLoading()) {
+            // The count being read may predate this change
+            updateCartCount();
+        } else {
+            showCartCount(count);
+        }
+    }
+
+    // Listen only while on screen, so a panel dropped on logout is not kept alive
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        cartService.addCartListener(cartListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        cartService.removeCartListener(cartListener);
+        super.removeNotify();
+    }
+
     public void refresh() {
         loadProducts();
         updateCartCount();
@@ -1,16 +1,23 @@
 package com.ecommerce.ui;
 
+import com.ecommerce.config.DatabaseConnection;
 import com.ecommerce.model.Category;
 import com.ecommerce.model.Product;
 import com.ecommerce.service.ProductService;
+import com.ecommerce.util.Money;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -21,7 +28,10 @@ public class ProductManagementPanel extends JPanel {
     private ProductService productService;
     
     private JTable productsTable;
-    private DefaultTableModel tableModel;
+    private ProductTableModel tableModel;
+    private TableRowSorter<ProductTableModel> sorter;
+    private JTextField filterField;
+    private Timer filterTimer;
     private JTextField nameField;
     private JTextField priceField;
     private JTextField stockField;
@@ -34,9 +44,12 @@ public class ProductManagementPanel extends JPanel {
     private JButton clearButton;
     private JButton backButton;
     
-    private List<Product> products;
-    private List<Category> categories;
+    private List<Category> categories = new ArrayList<>();
     private Product selectedProduct;
+    private BackgroundLoader productsLoader;
+    private BackgroundLoader categoriesLoader;
+    // Not cancelled when hidden; a save already sent to the database should still be shown
+    private BackgroundLoader saveLoader;
 
     /**
      * Constructor for the ProductManagementPanel
@@ -44,48 +57,86 @@ public class ProductManagementPanel extends JPanel {
      */
     public ProductManagementPanel(MainFrame mainFrame) {
         this.mainFrame = mainFrame;
-        this.productService = new ProductService(); // Initialize service
+        this.productService = mainFrame.getProductService();
+        this.productsLoader = new BackgroundLoader(this).cancelWhenHidden();
+        this.categoriesLoader = new BackgroundLoader(this).cancelWhenHidden();
+        this.saveLoader = new BackgroundLoader(this);
         
-        loadData();
         initializeComponents();
         setupLayout();
         setupListeners();
+        loadData();
     }
     
     /**
-     * Load products and categories from the database
+     * Disable the buttons and the table while a save is in progress, so it cannot be
+     * started twice or have its selection changed underneath it.
+     */
+    private void setSaving(boolean saving) {
+        addButton.setEnabled(!saving && categoryComboBox.getItemCount() > 0);
+        updateButton.setEnabled(!saving && selectedProduct != null);
+        deleteButton.setEnabled(!saving && selectedProduct != null);
+        clearButton.setEnabled(!saving);
+        productsTable.setEnabled(!saving);
+    }
+    
+    /**
+     * Reload products and categories, e.g. when the panel is shown again
+     */
+    public void refresh() {
+        loadData();
+    }
+    
+    /**
+     * Load products and categories from the database in the background
      */
     private void loadData() {
-        try {
-            products = productService.getAllProducts();
-            categories = productService.getAllCategories();
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
-                "Error loading data: " + e.getMessage(), 
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        productsLoader.load(productService::getAllProducts, tableModel::setProducts);
+        
+        // A product cannot be added until there are categories to choose from
+        addButton.setEnabled(false);
+        categoriesLoader.load(productService::getAllCategories, loaded -> {
+            categories = loaded;
+            categoryComboBox.removeAllItems();
+            for (Category category : categories) {
+                categoryComboBox.addItem(category);
+            }
+            addButton.setEnabled(!saveLoader.isLoading());
+        });
     }
 
     /**
      * Initialize all UI components
      */
     private void initializeComponents() {
-        // Create table model with column names
-        tableModel = new DefaultTableModel(
-            new Object[]{"ID", "Name", "Price", "Stock", "Category"}, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table non-editable
-            }
-        };
-        
         // Create table and set properties
+        tableModel = new ProductTableModel();
         productsTable = new JTable(tableModel);
         productsTable.setRowHeight(25);
         productsTable.getTableHeader().setReorderingAllowed(false);
         
-        // Populate table with products
-        populateTable();
+        DefaultTableCellRenderer priceRenderer = new DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                setText(value == null ? "" : Money.format((Long) value));
+            }
+        };
+        priceRenderer.setHorizontalAlignment(SwingConstants.RIGHT);
+        productsTable.getColumnModel().getColumn(ProductTableModel.PRICE_COLUMN).setCellRenderer(priceRenderer);
+        
+        // Clicking a header sorts by that column; rows are in id order until then
+        sorter = new TableRowSorter<>(tableModel);
+        sorter.setComparator(ProductTableModel.NAME_COLUMN, String.CASE_INSENSITIVE_ORDER);
+        sorter.setComparator(ProductTableModel.CATEGORY_COLUMN, String.CASE_INSENSITIVE_ORDER);
+        sorter.setSortKeys(Collections.singletonList(
+            new RowSorter.SortKey(ProductTableModel.ID_COLUMN, SortOrder.ASCENDING)));
+        productsTable.setRowSorter(sorter);
+        
+        // Filter field, applied once typing pauses
+        filterField = new JTextField(20);
+        filterTimer = new Timer(DatabaseConnection.getInstance().getIntProperty("search.debounceMillis", 250),
+            e -> applyFilter());
+        filterTimer.setRepeats(false);
         
         // Create form fields
         nameField = new JTextField(20);
@@ -111,25 +162,40 @@ public class ProductManagementPanel extends JPanel {
         // Disable update and delete buttons initially
         updateButton.setEnabled(false);
         deleteButton.setEnabled(false);
+        
+        saveLoader.setLoadingListener(this::setSaving);
     }
     
     /**
-     * Populate the table with products
+     * Show only the products whose name or category contains the filter text.
+     * The sorter skips rows by index, so nothing is copied or re-read.
      */
-    private void populateTable() {
-        // Clear existing rows
-        tableModel.setRowCount(0);
-        
-        // Add rows for each product
-        for (Product product : products) {
-            tableModel.addRow(new Object[]{
-                product.getId(),
-                product.getName(),
-                product.getPrice(),
-                product.getStock(),
-                product.getCategory().getName()
-            });
+    private void applyFilter() {
+        String text = filterField.getText().trim();
+        if (text.isEmpty()) {
+            sorter.setRowFilter(null);
+            return;
         }
+        sorter.setRowFilter(new RowFilter<ProductTableModel, Integer>() {
+            @Override
+            public boolean include(Entry<? extends ProductTableModel, ? extends Integer> entry) {
+                Product product = entry.getModel().getProductAt(entry.getIdentifier());
+                return containsIgnoreCase(product.getName(), text)
+                    || (product.getCategory() != null && containsIgnoreCase(product.getCategory().getName(), text));
+            }
+        });
+    }
+    
+    private static boolean containsIgnoreCase(String value, String part) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i + part.length() <= value.length(); i++) {
+            if (value.regionMatches(true, i, part, 0, part.length())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -148,9 +214,14 @@ public class ProductManagementPanel extends JPanel {
         JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT);
         splitPane.setDividerLocation(500);
         
-        // Add table in a scroll pane to the left side
-        JScrollPane tableScrollPane = new JScrollPane(productsTable);
-        splitPane.setLeftComponent(tableScrollPane);
+        // Add the filter and the table in a scroll pane to the left side
+        JPanel tablePanel = new JPanel(new BorderLayout(5, 5));
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("Filter:"));
+        filterPanel.add(filterField);
+        tablePanel.add(filterPanel, BorderLayout.NORTH);
+        tablePanel.add(new JScrollPane(productsTable), BorderLayout.CENTER);
+        splitPane.setLeftComponent(tablePanel);
         
         // Create form panel for right side
         JPanel formPanel = createFormPanel();
@@ -259,6 +330,24 @@ public class ProductManagementPanel extends JPanel {
             }
         });
         
+        // Filter field listener
+        filterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not alter the text
+            }
+        });
+        
         // Add button listener
         addButton.addActionListener(new ActionListener() {
             @Override
@@ -295,37 +384,30 @@ public class ProductManagementPanel extends JPanel {
         backButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                mainFrame.showPanel(new AdminDashboardPanel(mainFrame));
+                mainFrame.showAdminDashboardPanel();
             }
         });
     }
     
     /**
      * Load the details of the selected product into the form
-     * @param selectedRow The selected row index in the table
+     * @param selectedRow The selected row index in the table, as sorted and filtered
      */
     private void loadProductDetails(int selectedRow) {
-        int productId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        
-        // Find the product with the matching ID
-        for (Product product : products) {
-            if (product.getId() == productId) {
-                selectedProduct = product;
-                
-                // Populate form fields
-                nameField.setText(product.getName());
-                priceField.setText(String.valueOf(product.getPrice()));
-                stockField.setText(String.valueOf(product.getStock()));
-                descriptionArea.setText(product.getDescription());
-                
-                // Select the correct category in the combo box
-                for (int i = 0; i < categoryComboBox.getItemCount(); i++) {
-                    Category category = categoryComboBox.getItemAt(i);
-                    if (category.getId() == product.getCategory().getId()) {
-                        categoryComboBox.setSelectedIndex(i);
-                        break;
-                    }
-                }
+        Product product = tableModel.getProductAt(productsTable.convertRowIndexToModel(selectedRow));
+        selectedProduct = product;
+        
+        // Populate form fields
+        nameField.setText(product.getName());
+        priceField.setText(Money.toPlainString(product.getPriceCents()));
+        stockField.setText(String.valueOf(product.getStockQuantity()));
+        descriptionArea.setText(product.getDescription());
+        
+        // Select the correct category in the combo box
+        for (int i = 0; i < categoryComboBox.getItemCount(); i++) {
+            Category category = categoryComboBox.getItemAt(i);
+            if (category.getId() == product.getCategory().getId()) {
+                categoryComboBox.setSelectedIndex(i);
                 break;
             }
         }
@@ -344,34 +426,38 @@ public class ProductManagementPanel extends JPanel {
             // Create new product object
             Product product = new Product();
             product.setName(nameField.getText().trim());
-            product.setPrice(Double.parseDouble(priceField.getText().trim()));
-            product.setStock(Integer.parseInt(stockField.getText().trim()));
+            product.setPriceCents(Money.parse(priceField.getText()));
+            product.setStockQuantity(Integer.parseInt(stockField.getText().trim()));
             product.setCategory((Category) categoryComboBox.getSelectedItem());
             product.setDescription(descriptionArea.getText().trim());
             
-            // Add product to database
-            Product addedProduct = productService.addProduct(product);
-            
-            // Refresh data and table
-            products.add(addedProduct);
-            populateTable();
-            
-            // Show success message
-            JOptionPane.showMessageDialog(this,
-                "Product added successfully!",
-                "Success", JOptionPane.INFORMATION_MESSAGE);
-            
-            // Clear form
-            clearForm();
+            // Add product to database in the background; this sets its id
+            saveLoader.load(() -> productService.addProduct(product), added -> {
+                if (!added) {
+                    JOptionPane.showMessageDialog(this,
+                        "Product could not be added.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                
+                // Add its row to the table
+                tableModel.put(product);
+                
+                // Show success message
+                JOptionPane.showMessageDialog(this,
+                    "Product added successfully!",
+                    "Success", JOptionPane.INFORMATION_MESSAGE);
+                
+                // Clear form
+                clearForm();
+            }, e -> JOptionPane.showMessageDialog(this,
+                "Error adding product: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE));
             
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this,
                 "Invalid number format. Please check price and stock fields.",
                 "Input Error", JOptionPane.ERROR_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                "Error adding product: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
     
@@ -393,35 +479,44 @@ public class ProductManagementPanel extends JPanel {
                 return;
             }
             
-            // Update product object
-            selectedProduct.setName(nameField.getText().trim());
-            selectedProduct.setPrice(Double.parseDouble(priceField.getText().trim()));
-            selectedProduct.setStock(Integer.parseInt(stockField.getText().trim()));
-            selectedProduct.setCategory((Category) categoryComboBox.getSelectedItem());
-            selectedProduct.setDescription(descriptionArea.getText().trim());
-            
-            // Update product in database
-            productService.updateProduct(selectedProduct);
-            
-            // Refresh table
-            populateTable();
-            
-            // Show success message
-            JOptionPane.showMessageDialog(this,
-                "Product updated successfully!",
-                "Success", JOptionPane.INFORMATION_MESSAGE);
+            // Edit a copy; the selected product is still the table's row, which must keep
+            // showing what is saved until the update succeeds
+            Product product = new Product();
+            product.setId(selectedProduct.getId());
+            product.setImagePath(selectedProduct.getImagePath());
+            product.setName(nameField.getText().trim());
+            product.setPriceCents(Money.parse(priceField.getText()));
+            product.setStockQuantity(Integer.parseInt(stockField.getText().trim()));
+            product.setCategory((Category) categoryComboBox.getSelectedItem());
+            product.setDescription(descriptionArea.getText().trim());
             
-            // Clear form and selection
-            clearForm();
+            // Update product in database in the background
+            saveLoader.load(() -> productService.updateProduct(product), updated -> {
+                if (!updated) {
+                    JOptionPane.showMessageDialog(this,
+                        "Product could not be updated.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                
+                // Refresh its row
+                tableModel.put(product);
+                
+                // Show success message
+                JOptionPane.showMessageDialog(this,
+                    "Product updated successfully!",
+                    "Success", JOptionPane.INFORMATION_MESSAGE);
+                
+                // Clear form and selection
+                clearForm();
+            }, e -> JOptionPane.showMessageDialog(this,
+                "Error updating product: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE));
             
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this,
                 "Invalid number format. Please check price and stock fields.",
                 "Input Error", JOptionPane.ERROR_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                "Error updating product: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
     
@@ -429,27 +524,32 @@ public class ProductManagementPanel extends JPanel {
      * Delete a product from the database
      */
     private void deleteProduct() {
-        try {
-            // Check if a product is selected
-            if (selectedProduct == null) {
-                JOptionPane.showMessageDialog(this,
-                    "Please select a product to delete.",
-                    "Selection Required", JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-            
-            // Confirm deletion
-            int confirm = JOptionPane.showConfirmDialog(this,
-                "Are you sure you want to delete product: " + selectedProduct.getName() + "?",
-                "Confirm Deletion", JOptionPane.YES_NO_OPTION);
-            
-            if (confirm == JOptionPane.YES_OPTION) {
-                // Delete product from database
-                productService.deleteProduct(selectedProduct.getId());
+        // Check if a product is selected
+        if (selectedProduct == null) {
+            JOptionPane.showMessageDialog(this,
+                "Please select a product to delete.",
+                "Selection Required", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        
+        // Confirm deletion
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Are you sure you want to delete product: " + selectedProduct.getName() + "?",
+            "Confirm Deletion", JOptionPane.YES_NO_OPTION);
+        
+        if (confirm == JOptionPane.YES_OPTION) {
+            // Delete product from database in the background
+            int productId = selectedProduct.getId();
+            saveLoader.load(() -> productService.deleteProduct(productId), deleted -> {
+                if (!deleted) {
+                    JOptionPane.showMessageDialog(this,
+                        "Product could not be deleted.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
                 
-                // Remove from list and refresh table
-                products.remove(selectedProduct);
-                populateTable();
+                // Remove its row from the table
+                tableModel.remove(productId);
                 
                 // Show success message
                 JOptionPane.showMessageDialog(this,
@@ -458,12 +558,9 @@ public class ProductManagementPanel extends JPanel {
                 
                 // Clear form and selection
                 clearForm();
-            }
-            
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
+            }, e -> JOptionPane.showMessageDialog(this,
                 "Error deleting product: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
+                "Error", JOptionPane.ERROR_MESSAGE));
         }
     }
     
@@ -501,7 +598,7 @@ public class ProductManagementPanel extends JPanel {
         
         // Check if price is valid
         try {
-            double price = Double.parseDouble(priceField.getText().trim());
+            long price = Money.parse(priceField.getText());
             if (price <= 0) {
                 JOptionPane.showMessageDialog(this,
                     "Price must be greater than zero.",
@@ -0,0 +1,142 @@
+package com.ecommerce.ui;
+
+import com.ecommerce.model.Product;
+import com.ecommerce.util.IntIntMap;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table model for the admin product list. Rows are the products themselves, read column
+ * by column as the table paints, and a primitive index maps each product id to its row,
+ * so adding, changing or deleting one product touches only its own row instead of
+ * rebuilding the table. Deleting moves the last row into the gap, so the model's order is
+ * arbitrary; sort the table, e.g. by id, with a TableRowSorter, which orders and filters
+ * through an index of its own without copying any rows.
+ * Must be used on the Event Dispatch Thread.
+ */
+public class ProductTableModel extends AbstractTableModel {
+    public static final int ID_COLUMN = 0;
+    public static final int NAME_COLUMN = 1;
+    public static final int PRICE_COLUMN = 2;
+    public static final int STOCK_COLUMN = 3;
+    public static final int CATEGORY_COLUMN = 4;
+
+    private static final String[] COLUMN_NAMES = {"ID", "Name", "Price", "Stock", "Category"};
+
+    private final List<Product> products = new ArrayList<>();
+    private IntIntMap rowsById = new IntIntMap(0);
+
+    /**
+     * Replace all rows, e.g. with the catalog just loaded.
+     */
+    public void setProducts(List<Product> loaded) {
+        products.clear();
+        products.addAll(loaded);
+        rowsById = new IntIntMap(loaded.size());
+        for (int row = 0; row < products.size(); row++) {
+            rowsById.put(products.get(row).getId(), row);
+        }
+        fireTableDataChanged();
+    }
+
+    public Product getProductAt(int row) {
+        return products.get(row);
+    }
+
+    /**
+     * The row of the product with this id, or -1 if it is not in the table.
+     */
+    public int indexOf(int productId) {
+        return rowsById.get(productId, -1);
+    }
+
+    /**
+     * Add a row for a new product, or refresh the row of one already in the table.
+     */
+    public void put(Product product) {
+        int row = indexOf(product.getId());
+        if (row >= 0) {
+            products.set(row, product);
+            fireTableRowsUpdated(row, row);
+            return;
+        }
+        row = products.size();
+        products.add(product);
+        rowsById.put(product.getId(), row);
+        fireTableRowsInserted(row, row);
+    }
+
+    /**
+     * Remove the row of the product with this id, returning whether there was one.
+     */
+    public boolean remove(int productId) {
+        int row = indexOf(productId);
+        if (row < 0) {
+            return false;
+        }
+        rowsById.remove(productId);
+        int last = products.size() - 1;
+        if (row == last) {
+            products.remove(last);
+            fireTableRowsDeleted(row, row);
+            return true;
+        }
+
+        // Fill the gap with the last row rather than shifting every row after it
+        Product moved = products.remove(last);
+        products.set(row, moved);
+        rowsById.put(moved.getId(), row);
+        fireTableRowsDeleted(last, last);
+        fireTableRowsUpdated(row, row);
+        return true;
+    }
+
+    @Override
+    public int getRowCount() {
+        return products.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case ID_COLUMN:
+            case STOCK_COLUMN:
+                return Integer.class;
+            case PRICE_COLUMN:
+                return Long.class;
+            default:
+                return String.class;
+        }
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Product product = products.get(row);
+        switch (column) {
+            case ID_COLUMN:
+                return product.getId();
+            case NAME_COLUMN:
+                return product.getName();
+            case PRICE_COLUMN:
+                return product.getPriceCents();
+            case STOCK_COLUMN:
+                return product.getStockQuantity();
+            case CATEGORY_COLUMN:
+                return product.getCategory() != null ? product.getCategory().getName() : "Uncategorized";
+            default:
+                return null;
+        }
+    }
+}
\ No newline at end of file
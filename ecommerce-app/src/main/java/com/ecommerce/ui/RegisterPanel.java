@@ -1,6 +1,5 @@
 package com.ecommerce.ui;
 
-import com.ecommerce.service.AuthService;
 import com.ecommerce.util.ValidationUtil;
 
 import javax.swing.*;
@@ -16,14 +15,18 @@ public class RegisterPanel extends JPanel {
     private JButton registerButton;
     private JButton backButton;
     private JLabel statusLabel;
-    private AuthService authService;
     private MainFrame parent;
+    private BackgroundLoader registerLoader;
     
     public RegisterPanel(MainFrame parent) {
         this.parent = parent;
-        this.authService = new AuthService();
+        this.registerLoader = new BackgroundLoader(this);
         
         initializeUI();
+        registerLoader.setLoadingListener(loading -> {
+            registerButton.setEnabled(!loading);
+            backButton.setEnabled(!loading);
+        });
     }
     
     private void initializeUI() {
@@ -119,9 +122,12 @@ public class RegisterPanel extends JPanel {
             return;
         }
         
-        // Register the user
-        boolean success = authService.register(email, password, fullName);
-        
+        // Register the user; hashing the password takes a noticeable moment, so keep it off the EDT
+        statusLabel.setText("Registering...");
+        registerLoader.load(() -> parent.getAuthService().register(email, password, fullName), this::registrationFinished);
+    }
+    
+    private void registrationFinished(boolean success) {
         if (success) {
             statusLabel.setText("");
             JOptionPane.showMessageDialog(this, "Registration successful! Please login.", "Success", JOptionPane.INFORMATION_MESSAGE);
@@ -0,0 +1,330 @@
+package com.ecommerce.ui;
+
+import com.ecommerce.config.DatabaseConnection;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Product thumbnails, decoded and scaled down on a small background pool so the Event
+ * Dispatch Thread only ever paints finished icons. Renderers call get, which answers from
+ * memory or returns null and queues the image; the callers' listeners run on the EDT once
+ * it is ready, e.g. to repaint the row. The newest request is decoded first, so after a
+ * fast scroll the rows now on screen come before the ones scrolled past, and once too many
+ * are waiting the oldest are dropped; a dropped image is queued again the next time its
+ * row is painted. Images read from URLs give up after the connect and read timeouts.
+ *
+ * Thumbnails are kept in an LRU cache bounded by their size in bytes. Ones evicted from it
+ * stay reachable through soft references until the garbage collector needs the memory, and
+ * come back into the cache if asked for again. The cache is only touched on the EDT.
+ *
+ * Image locations may be URLs, file paths, or names under /images on the class path.
+ */
+public class ThumbnailLoader {
+    private static ThumbnailLoader instance;
+
+    private final int size;
+    private final long maxBytes;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    // Only touched on the EDT
+    private final LinkedHashMap<String, Icon> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, SoftReference<Icon>> evicted = new HashMap<>();
+    private final Map<String, List<Runnable>> pending = new HashMap<>();
+    private final Set<String> failed = new HashSet<>();
+    private long cachedBytes;
+
+    /**
+     * @param maxQueued most images waiting to be read; the oldest are dropped beyond this
+     */
+    public ThumbnailLoader(int size, long maxBytes, int threads, int maxQueued,
+                           int connectTimeoutMillis, int readTimeoutMillis) {
+        if (size < 1 || maxBytes < 1 || threads < 1 || maxQueued < 1
+                || connectTimeoutMillis < 1 || readTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Invalid thumbnail settings: size=" + size
+                    + ", maxBytes=" + maxBytes + ", threads=" + threads + ", maxQueued=" + maxQueued
+                    + ", connectTimeout=" + connectTimeoutMillis + "ms, readTimeout=" + readTimeoutMillis + "ms");
+        }
+        this.size = size;
+        this.maxBytes = maxBytes;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LifoQueue(maxQueued), r -> {
+                    Thread thread = new Thread(r, "thumbnail-loader-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    public static synchronized ThumbnailLoader getInstance() {
+        if (instance == null) {
+            DatabaseConnection config = DatabaseConnection.getInstance();
+            instance = new ThumbnailLoader(
+                    config.getIntProperty("thumbnail.size", 48),
+                    config.getLongProperty("thumbnail.cacheBytes", 32L * 1024 * 1024),
+                    config.getIntProperty("thumbnail.threads", 2),
+                    config.getIntProperty("thumbnail.maxQueued", 256),
+                    config.getIntProperty("thumbnail.connectTimeoutMillis", 5000),
+                    config.getIntProperty("thumbnail.readTimeoutMillis", 10000));
+        }
+        return instance;
+    }
+
+    /**
+     * Whether the catalog should show thumbnails at all.
+     */
+    public static boolean isEnabled() {
+        return DatabaseConnection.getInstance().getBooleanProperty("thumbnail.enabled", true);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * The thumbnail for an image location if it is in memory, otherwise null. A missing one
+     * is queued, and the listener runs on the EDT when it is ready; it does not run if the
+     * image cannot be read. Must be called on the EDT.
+     */
+    public Icon get(String location, Runnable onLoaded) {
+        if (location == null || location.trim().isEmpty() || failed.contains(location)) {
+            return null;
+        }
+        Icon icon = cache.get(location);
+        if (icon != null) {
+            return icon;
+        }
+        SoftReference<Icon> ref = evicted.remove(location);
+        if (ref != null && (icon = ref.get()) != null) {
+            put(location, icon);
+            return icon;
+        }
+
+        List<Runnable> listeners = pending.get(location);
+        if (listeners != null) {
+            listeners.add(onLoaded);
+            return null;
+        }
+        listeners = new ArrayList<>();
+        listeners.add(onLoaded);
+        pending.put(location, listeners);
+        executor.execute(new LoadTask(location));
+        return null;
+    }
+
+    private void finished(String location, Icon icon) {
+        List<Runnable> listeners = pending.remove(location);
+        if (icon == null) {
+            failed.add(location);
+            return;
+        }
+        put(location, icon);
+        if (listeners != null) {
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+    }
+
+    private void put(String location, Icon icon) {
+        Icon previous = cache.put(location, icon);
+        if (previous != null) {
+            cachedBytes -= bytes(previous);
+        }
+        cachedBytes += bytes(icon);
+
+        // Drop least recently used thumbnails to soft references until back under the limit
+        Iterator<Map.Entry<String, Icon>> it = cache.entrySet().iterator();
+        while (cachedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Icon> eldest = it.next();
+            if (eldest.getKey().equals(location)) {
+                continue;
+            }
+            it.remove();
+            cachedBytes -= bytes(eldest.getValue());
+            evicted.put(eldest.getKey(), new SoftReference<>(eldest.getValue()));
+        }
+        if (evicted.size() > cache.size() * 4 + 256) {
+            evicted.values().removeIf(softRef -> softRef.get() == null);
+        }
+    }
+
+    private static long bytes(Icon icon) {
+        return (long) icon.getIconWidth() * icon.getIconHeight() * 4;
+    }
+
+    // Runs on a loader thread
+    private Icon load(String location) {
+        try (InputStream raw = open(location);
+             ImageInputStream input = ImageIO.createImageInputStream(raw)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                // Skip source pixels while decoding a large image, so it is never held full size
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.min(width, height) / (size * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return new ImageIcon(scale(reader.read(0, param)));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error loading image " + location + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private InputStream open(String location) throws IOException {
+        if (location.contains("://")) {
+            URLConnection connection = new URL(location).openConnection();
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
+            return connection.getInputStream();
+        }
+        File file = new File(location);
+        if (file.isFile()) {
+            return new FileInputStream(file);
+        }
+        InputStream resource = ThumbnailLoader.class.getResourceAsStream(
+                "/images/" + location.replaceFirst("^/+", ""));
+        if (resource == null) {
+            throw new IOException("not found");
+        }
+        return resource;
+    }
+
+    /**
+     * Fit the image in a size x size square, halving repeatedly for a smooth result.
+     */
+    private BufferedImage scale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double factor = Math.min(1.0, (double) size / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * factor));
+        int targetHeight = Math.max(1, (int) Math.round(height * factor));
+
+        BufferedImage current = image;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    /**
+     * Bytes of thumbnails held in the LRU cache, not counting soft references.
+     */
+    public long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Stop the shared loader's threads if it was ever started. Safe to call on application exit.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    private class LoadTask implements Runnable {
+        private final String location;
+
+        LoadTask(String location) {
+            this.location = location;
+        }
+
+        @Override
+        public void run() {
+            Icon loaded = load(location);
+            SwingUtilities.invokeLater(() -> finished(location, loaded));
+        }
+
+        // Forget the request without marking the image failed, so it can be asked for again
+        void dropped() {
+            SwingUtilities.invokeLater(() -> pending.remove(location));
+        }
+    }
+
+    // Work queue that hands out the most recently queued task first, dropping the oldest when full
+    private static class LifoQueue extends LinkedBlockingDeque<Runnable> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxQueued;
+
+        LifoQueue(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        @Override
+        public boolean offer(Runnable r) {
+            // Only the EDT queues tasks, so nothing else fills the room made here
+            while (size() >= maxQueued) {
+                Runnable oldest = pollLast();
+                if (oldest == null) {
+                    break;
+                }
+                if (oldest instanceof LoadTask) {
+                    ((LoadTask) oldest).dropped();
+                }
+            }
+            return offerFirst(r);
+        }
+
+        @Override
+        public boolean add(Runnable r) {
+            return offer(r);
+        }
+    }
+}
\ No newline at end of file
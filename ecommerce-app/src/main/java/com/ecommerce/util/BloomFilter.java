@@ -0,0 +1,80 @@
+package com.ecommerce.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over strings. mightContain never returns false for a string
+ * that was put, and returns true for one that was not with roughly the configured
+ * probability as long as no more than the expected number of strings are added.
+ * Safe for concurrent use; bits are set with compare-and-set and never cleared.
+ */
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final int expectedInsertions;
+
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter settings: expected=" + expectedInsertions
+                    + ", falsePositiveRate=" + falsePositiveRate);
+        }
+        // Optimal sizes: m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hash functions
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate)
+                / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (optimalBits + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public void put(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    // 64-bit FNV-1a over the string's chars, then a finalizer to spread the bits
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.ecommerce.util;
+
+/**
+ * Hash map from int keys to int values held in two primitive arrays, so a lookup never
+ * boxes and an entry costs eight bytes plus slack rather than a node object.
+ * Open addressing with linear probing; removal shifts later entries back instead of
+ * leaving tombstones, so lookups stay short however many entries come and go.
+ * Not safe for concurrent use.
+ */
+public class IntIntMap {
+    private static final int EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // Key 0 marks an empty slot, so it is kept apart
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    public IntIntMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Invalid expected size: " + expectedSize);
+        }
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * The value for a key, or missingValue if there is none.
+     */
+    public int get(int key, int missingValue) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : missingValue;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            int k = keys[slot];
+            if (k == key) {
+                return values[slot];
+            }
+            if (k == EMPTY) {
+                return missingValue;
+            }
+        }
+    }
+
+    public void put(int key, int value) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > (mask + 1) * LOAD_FACTOR) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Remove a key, returning whether it was there.
+     */
+    public boolean remove(int key) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                return false;
+            }
+            hasZeroKey = false;
+            size--;
+            return true;
+        }
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Move back any later entry of the run that would no longer be found past the gap
+        int gap = slot;
+        for (slot = (gap + 1) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int home = slot(keys[slot]);
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(int key) {
+        // Spread sequential ids, e.g. auto-increment keys, across the table
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = hasZeroKey ? 1 : 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize + 1) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.ecommerce.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money as a primitive long count of cents.
+ * Arithmetic is exact and allocation-free; BigDecimal is only used at the edges,
+ * when reading or writing DECIMAL(10,2) columns and parsing user input.
+ */
+public class Money {
+    public static final int SCALE = 2;
+
+    public static long add(long cents, long otherCents) {
+        return Math.addExact(cents, otherCents);
+    }
+
+    public static long subtract(long cents, long otherCents) {
+        return Math.subtractExact(cents, otherCents);
+    }
+
+    public static long multiply(long cents, int quantity) {
+        return Math.multiplyExact(cents, quantity);
+    }
+
+    /**
+     * Multiply by the fraction numerator / denominator, rounding half away from zero,
+     * e.g. multiplyAndRound(price, 825, 10000) for an 8.25% tax.
+     */
+    public static long multiplyAndRound(long cents, long numerator, long denominator) {
+        if (denominator == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        long product = Math.multiplyExact(cents, numerator);
+        long quotient = product / denominator;
+        long remainder = product % denominator;
+        if (Math.abs(remainder) >= Math.abs(denominator) - Math.abs(remainder)) {
+            quotient += Long.signum(product) * Long.signum(denominator);
+        }
+        return quotient;
+    }
+
+    /**
+     * Convert a database or user amount to cents, rounding half up to the nearest cent.
+     */
+    public static long fromBigDecimal(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * Parse an amount such as "12.5" or "12.50".
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static long parse(String text) {
+        try {
+            return fromBigDecimal(new BigDecimal(text.trim()));
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+
+    /**
+     * Format for display, e.g. "$12.50" or "-$0.99".
+     */
+    public static String format(long cents) {
+        StringBuilder sb = new StringBuilder(16);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        sb.append('$');
+        appendPlain(sb, cents);
+        return sb.toString();
+    }
+
+    /**
+     * Format without a currency symbol, e.g. "12.50", for editable fields.
+     */
+    public static String toPlainString(long cents) {
+        StringBuilder sb = new StringBuilder(16);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        appendPlain(sb, cents);
+        return sb.toString();
+    }
+
+    private static void appendPlain(StringBuilder sb, long cents) {
+        // Work with the negative value so Long.MIN_VALUE does not overflow
+        long negative = cents > 0 ? -cents : cents;
+        long units = -(negative / 100);
+        int fraction = (int) -(negative % 100);
+        sb.append(units).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,254 @@
+package com.ecommerce.util;
+
+import com.ecommerce.config.DatabaseConnection;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PBKDF2-HMAC-SHA256 password hashing on a small dedicated thread pool.
+ * Hashing is deliberately slow, so it runs on its own threads with a bounded queue:
+ * a burst of logins waits its turn there instead of tying up every thread in the application.
+ * A caller that finds the queue full waits up to the configured time for room, then gets a
+ * RejectedExecutionException. Each worker keeps its own SecretKeyFactory and MessageDigest.
+ *
+ * Hashes are stored as "pbkdf2$iterations$salt$hash" with Base64 salt and hash, so the cost can
+ * be raised later. Plain Base64 SHA-256 hashes written by earlier versions still verify;
+ * needsRehash tells the caller to replace them.
+ */
+public class PasswordHasher {
+    private static final String PREFIX = "pbkdf2";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private static final ThreadLocal<SecretKeyFactory> KEY_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    });
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private static PasswordHasher instance;
+
+    private final int iterations;
+    private final long queueWaitMillis;
+    private final ThreadPoolExecutor executor;
+    private final SecureRandom random = new SecureRandom();
+
+    private final LongAdder hashCount = new LongAdder();
+    private final LongAdder verifyCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public PasswordHasher(int iterations, int threads, int queueCapacity, long queueWaitMillis) {
+        if (iterations < 1 || threads < 1 || queueCapacity < 1 || queueWaitMillis < 0) {
+            throw new IllegalArgumentException("Invalid password hashing settings: iterations=" + iterations
+                    + ", threads=" + threads + ", queue=" + queueCapacity + ", wait=" + queueWaitMillis + "ms");
+        }
+        this.iterations = iterations;
+        this.queueWaitMillis = queueWaitMillis;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, (r, pool) -> {
+                    // Queue full: wait a little for room rather than failing the login straight away
+                    try {
+                        if (!pool.isShutdown() && pool.getQueue().offer(r, this.queueWaitMillis, TimeUnit.MILLISECONDS)) {
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    rejectedCount.increment();
+                    throw new RejectedExecutionException("Too many password checks in progress");
+                });
+    }
+
+    public static synchronized PasswordHasher getInstance() {
+        if (instance == null) {
+            DatabaseConnection config = DatabaseConnection.getInstance();
+            instance = new PasswordHasher(
+                    config.getIntProperty("password.pbkdf2.iterations", 210000),
+                    config.getIntProperty("password.hashThreads", 2),
+                    config.getIntProperty("password.queueCapacity", 64),
+                    config.getLongProperty("password.queueWaitMillis", 2000));
+        }
+        return instance;
+    }
+
+    public String hash(String password) {
+        hashCount.increment();
+        return run(() -> {
+            byte[] salt = new byte[SALT_BYTES];
+            random.nextBytes(salt);
+            byte[] hash = pbkdf2(password, salt, iterations);
+            Base64.Encoder encoder = Base64.getEncoder();
+            return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+        });
+    }
+
+    public boolean verify(String password, String storedHash) {
+        if (storedHash == null) {
+            return false;
+        }
+        verifyCount.increment();
+        return run(() -> {
+            if (!storedHash.startsWith(PREFIX + "$")) {
+                byte[] legacy = SHA_256.get().digest(password.getBytes(StandardCharsets.UTF_8));
+                return MessageDigest.isEqual(legacy, decode(storedHash));
+            }
+
+            String[] parts = storedHash.split("\\$");
+            if (parts.length != 4) {
+                return false;
+            }
+            try {
+                int storedIterations = Integer.parseInt(parts[1]);
+                byte[] salt = Base64.getDecoder().decode(parts[2]);
+                byte[] expected = Base64.getDecoder().decode(parts[3]);
+                return MessageDigest.isEqual(pbkdf2(password, salt, storedIterations), expected);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Whether a stored hash is in the legacy format or uses fewer iterations than configured,
+     * and should be replaced with a fresh hash after the next successful login.
+     */
+    public boolean needsRehash(String storedHash) {
+        if (storedHash == null || !storedHash.startsWith(PREFIX + "$")) {
+            return true;
+        }
+        String[] parts = storedHash.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return KEY_FACTORY.get().generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error hashing password", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static byte[] decode(String base64) {
+        try {
+            return Base64.getDecoder().decode(base64);
+        } catch (IllegalArgumentException e) {
+            return new byte[0];
+        }
+    }
+
+    private <T> T run(Callable<T> task) {
+        long began = System.nanoTime();
+        Future<T> future = null;
+        try {
+            future = executor.submit(task);
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Error hashing password", e.getCause());
+        } finally {
+            long elapsed = System.nanoTime() - began;
+            totalNanos.add(elapsed);
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public long getHashCount() {
+        return hashCount.sum();
+    }
+
+    public long getVerifyCount() {
+        return verifyCount.sum();
+    }
+
+    /**
+     * Number of requests turned away because the queue stayed full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Requests waiting for a hashing thread right now.
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Mean time from submitting a hash or check to getting its result, queueing included.
+     */
+    public double getAverageMillis() {
+        long count = hashCount.sum() + verifyCount.sum();
+        return count == 0 ? 0.0 : totalNanos.sum() / 1e6 / count;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Stop the shared hasher's threads if it was ever started. Safe to call on application exit.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+}
\ No newline at end of file
@@ -1,27 +1,21 @@
 package com.ecommerce.util;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.util.Base64;
-
 public class PasswordUtil {
     
-    // Note: In a production environment, use a proper password hashing library like BCrypt
+    // Hashing is done by PasswordHasher with PBKDF2 on its own threads; see there for the stored format
     
     public static String hashPassword(String password) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hash = md.digest(password.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(hash);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error hashing password", e);
-        }
+        return PasswordHasher.getInstance().hash(password);
     }
     
     public static boolean checkPassword(String plainPassword, String hashedPassword) {
-        String hashedInput = hashPassword(plainPassword);
-        return hashedInput.equals(hashedPassword);
+        return PasswordHasher.getInstance().verify(plainPassword, hashedPassword);
+    }
+    
+    /**
+     * Whether a stored hash predates the current format or cost and should be replaced.
+     */
+    public static boolean needsRehash(String hashedPassword) {
+        return PasswordHasher.getInstance().needsRehash(hashedPassword);
     }
 }
\ No newline at end of file
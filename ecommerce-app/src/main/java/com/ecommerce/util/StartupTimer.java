@@ -0,0 +1,40 @@
+package com.ecommerce.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Records how long the desktop application takes to come up, e.g. to the first frame and
+ * to the login form accepting input. Each milestone is printed once, with the time since
+ * the JVM's launch and since main was reached.
+ */
+public class StartupTimer {
+    private static final Set<String> reached = new HashSet<>();
+    private static long mainStartedMillis = -1;
+
+    /**
+     * Call first thing in main.
+     */
+    public static synchronized void mainStarted() {
+        if (mainStartedMillis < 0) {
+            mainStartedMillis = uptimeMillis();
+        }
+    }
+
+    /**
+     * Record a milestone and print it, unless it was already reached.
+     */
+    public static synchronized void mark(String milestone) {
+        if (!reached.add(milestone)) {
+            return;
+        }
+        long millis = uptimeMillis();
+        System.out.println("Startup: " + milestone + " after " + millis + " ms"
+                + (mainStartedMillis >= 0 ? " (" + (millis - mainStartedMillis) + " ms since main)" : ""));
+    }
+
+    private static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
\ No newline at end of file
@@ -16,8 +16,7 @@ public class ValidationUtil {
     
     public static boolean isValidPrice(String priceStr) {
         try {
-            double price = Double.parseDouble(priceStr);
-            return price >= 0;
+            return Money.parse(priceStr) >= 0;
         } catch (NumberFormatException e) {
             return false;
         }